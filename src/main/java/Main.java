@@ -1,3 +1,4 @@
+import common.RunJournal;
 import dao.DAO;
 import hello_swarm.HelloSwarm;
 import hello_world.HelloWorld;
@@ -9,14 +10,22 @@ import uniswap_v3.UniSwap_V3;
 
 public class Main {
 
+    // Main [runId]: resumes the given run from its last confirmed step, or starts a new run
+    // (the journal of a run is deleted once the run completes)
     public static void main(String[] args) throws Exception {
-        HelloSwarm.deploy();
-        HelloWorld.deploy();
-        HTSv2.deploy();
-        TestError.deploy();
-        TestEvent.deploy();
-        Nayms.deploy();
-        DAO.deploy();
-        UniSwap_V3.deploy();
+        RunJournal.open(args.length > 0 ? args[0] : RunJournal.newRunId());
+        try {
+            HelloSwarm.deploy();
+            HelloWorld.deploy();
+            HTSv2.deploy();
+            TestError.deploy();
+            TestEvent.deploy();
+            Nayms.deploy();
+            DAO.deploy();
+            UniSwap_V3.deploy();
+            RunJournal.complete();
+        } finally {
+            RunJournal.close();
+        }
     }
 }
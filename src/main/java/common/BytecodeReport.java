@@ -0,0 +1,517 @@
+package common;
+
+import javax.json.Json;
+import javax.json.JsonObject;
+import javax.json.JsonReader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Static size report of every artifacts/*.bin under src/main/java, analyzed in parallel.
+ * Each artifact is decoded in a single pass: the init code is decoded until the CODECOPY
+ * that copies the runtime code, then the runtime code is decoded up to its CBOR metadata trailer.
+ * Reports init/runtime sizes against EIP-170 (24 KB runtime) and EIP-3860 (48 KB init),
+ * the FileAppend chunks Utils.deploy needs, the code deposit gas, the PUSH data density,
+ * the metadata trailer and (with --dispatch) the function dispatch table.
+ *
+ * Usage: BytecodeReport [--dispatch] [ContractName...]
+ */
+public class BytecodeReport {
+
+    public static final int MAX_RUNTIME_SIZE = 24_576;   // EIP-170
+    public static final int MAX_INIT_SIZE = 49_152;      // EIP-3860
+
+    private static final int FILE_APPEND_CHUNK_SIZE = 4096; // FileAppendTransaction default chunk size
+    private static final int MAX_CHUNKS = 40;               // as set by Utils.deploy
+    private static final int DEPLOY_GAS = 2_000_000;        // as set by Utils.deploy
+    private static final int CODE_DEPOSIT_GAS = 200;        // per runtime byte
+
+    private static final int CODECOPY = 0x39;
+    private static final int JUMPDEST = 0x5b;
+    private static final int PUSH0 = 0x5f;
+    private static final int PUSH1 = 0x60;
+    private static final int PUSH4 = 0x63;
+    private static final int PUSH32 = 0x7f;
+    private static final int DUP1 = 0x80;
+    private static final int DUP16 = 0x8f;
+    private static final int SWAP1 = 0x90;
+    private static final int SWAP16 = 0x9f;
+    private static final int EQ = 0x14;
+    private static final int JUMPI = 0x57;
+
+    private static final long UNKNOWN = -1;
+
+    // Stack items consumed (-1 for undefined opcodes) and pushed by each opcode
+    private static final byte[] STACK_IN = new byte[256];
+    private static final byte[] STACK_OUT = new byte[256];
+
+    static {
+        Arrays.fill(STACK_IN, (byte) -1);
+        define(0x00, 0, 0);
+        for (int op : new int[] { 0x01, 0x02, 0x03, 0x04, 0x05, 0x06, 0x07, 0x0a, 0x0b,
+                0x10, 0x11, 0x12, 0x13, 0x14, 0x16, 0x17, 0x18, 0x1a, 0x1b, 0x1c, 0x1d, 0x20 }) {
+            define(op, 2, 1);
+        }
+        define(0x08, 3, 1);
+        define(0x09, 3, 1);
+        define(0x15, 1, 1);
+        define(0x19, 1, 1);
+        for (int op : new int[] { 0x30, 0x32, 0x33, 0x34, 0x36, 0x38, 0x3a, 0x3d,
+                0x41, 0x42, 0x43, 0x44, 0x45, 0x46, 0x47, 0x48, 0x4a, 0x58, 0x59, 0x5a }) {
+            define(op, 0, 1);
+        }
+        for (int op : new int[] { 0x31, 0x35, 0x3b, 0x3f, 0x40, 0x49, 0x51, 0x54, 0x5c }) {
+            define(op, 1, 1);
+        }
+        define(0x37, 3, 0);
+        define(0x39, 3, 0);
+        define(0x3c, 4, 0);
+        define(0x3e, 3, 0);
+        define(0x50, 1, 0);
+        define(0x52, 2, 0);
+        define(0x53, 2, 0);
+        define(0x55, 2, 0);
+        define(0x56, 1, 0);
+        define(0x57, 2, 0);
+        define(0x5b, 0, 0);
+        define(0x5d, 2, 0);
+        define(0x5e, 3, 0);
+        for (int n = 0; n <= 32; n++) {
+            define(PUSH0 + n, 0, 1);
+        }
+        for (int n = 1; n <= 16; n++) {
+            define(0x7f + n, n, n + 1);  // DUPn
+            define(0x8f + n, n + 1, n + 1);  // SWAPn
+        }
+        for (int n = 0; n <= 4; n++) {
+            define(0xa0 + n, n + 2, 0);  // LOGn
+        }
+        define(0xf0, 3, 1);
+        define(0xf1, 7, 1);
+        define(0xf2, 7, 1);
+        define(0xf3, 2, 0);
+        define(0xf4, 6, 1);
+        define(0xf5, 4, 1);
+        define(0xfa, 6, 1);
+        define(0xfd, 2, 0);
+        define(0xfe, 0, 0);
+        define(0xff, 1, 0);
+    }
+
+    public static void main(String[] args) throws Exception {
+        boolean dispatch = false;
+        final List<String> names = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.equals("--dispatch")) {
+                dispatch = true;
+            } else {
+                names.add(arg);
+            }
+        }
+
+        // 1) Lists artifacts
+        final Path root = Path.of(System.getProperty("user.dir"), "src", "main", "java");
+        final List<Path> binFiles;
+        try (Stream<Path> files = Files.walk(root)) {
+            binFiles = files
+                    .filter(p -> p.getFileName().toString().endsWith(".bin"))
+                    .filter(p -> p.getParent().getFileName().toString().equals("artifacts"))
+                    .filter(p -> names.isEmpty() || names.contains(contractName(p)))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+
+        // 2) Analyzes them in parallel
+        final ExecutorService pool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        final List<Future<Analysis>> futures = new ArrayList<>();
+        try {
+            for (Path binFile : binFiles) {
+                futures.add(pool.submit(() -> analyze(binFile, root)));
+            }
+        } finally {
+            pool.shutdown();
+        }
+        final List<Analysis> analyses = new ArrayList<>();
+        int skipped = 0;
+        for (Future<Analysis> f : futures) {
+            final Analysis a = f.get();
+            if (a != null) {
+                analyses.add(a);
+            } else {
+                skipped += 1;
+            }
+        }
+        analyses.sort(Comparator.comparingInt((Analysis a) -> a.runtimeSize).thenComparingInt(a -> a.initSize).reversed());
+
+        // 3) Reports
+        System.out.printf("%-44s %7s %7s %6s %7s %7s %10s %6s %5s %5s  %s%n",
+                "artifact", "init", "runtime", "170%", "embed", "appends", "deposit", "push%", "sels", "meta", "solc / metadata hash");
+        for (Analysis a : analyses) {
+            System.out.printf("%-44s %7d %7s %6s %7d %7d %10s %6.1f %5d %5d  %s %s%s%n",
+                    a.name, a.initSize,
+                    a.runtimeSize >= 0 ? Integer.toString(a.runtimeSize) : "?",
+                    a.runtimeSize >= 0 ? Math.round(100.0 * a.runtimeSize / MAX_RUNTIME_SIZE) + "%" : "?",
+                    a.embeddedSize,
+                    a.appendChunks,
+                    a.runtimeSize >= 0 ? Long.toString((long) CODE_DEPOSIT_GAS * a.runtimeSize) : "?",
+                    a.pushDensity(), a.selectors.size(), a.metadataSize,
+                    a.solc, a.metadataHash, a.warnings.isEmpty() ? "" : "  <- " + String.join(", ", a.warnings));
+        }
+        System.out.println(analyses.size() + " artifact(s) analyzed, " + skipped + " empty (abstract contracts and interfaces)");
+
+        if (dispatch) {
+            for (Analysis a : analyses) {
+                System.out.println();
+                System.out.println(a.name + " (" + a.selectors.size() + " selectors)");
+                final Map<Integer, String> signatures = readSignatures(a.metaFile);
+                for (Map.Entry<Integer, Integer> e : a.selectors.entrySet()) {
+                    System.out.printf("  0x%08x -> 0x%04x  %s%n", e.getKey(), e.getValue(),
+                            signatures.getOrDefault(e.getKey(), "?"));
+                }
+            }
+        }
+    }
+
+    public static class Analysis {
+        public String name;
+        public int initSize;                    // whole .bin minus the runtime code (constructor data included)
+        public int runtimeSize = -1;            // metadata trailer included, as deployed
+        public int metadataSize;                // CBOR trailer, length suffix included
+        public int appendChunks;
+        public int embeddedSize;                // creation code of contracts created by the runtime (CREATE/CREATE2)
+        public int pushDataSize;                // runtime immediates
+        public int linkPlaceholders;
+        public String solc = "?";
+        public String metadataHash = "";
+        public final Map<Integer, Integer> selectors = new LinkedHashMap<>(); // selector -> jump destination
+        public final List<String> warnings = new ArrayList<>();
+        Path metaFile;
+
+        public double pushDensity() {
+            final int codeSize = runtimeSize - metadataSize - embeddedSize;
+            return codeSize > 0 ? 100.0 * pushDataSize / codeSize : 0;
+        }
+    }
+
+    /** null for an empty .bin */
+    public static Analysis analyze(Path binFile, Path root) throws Exception {
+        final String hex = Files.readString(binFile, StandardCharsets.US_ASCII).trim();
+        if (hex.isEmpty()) {
+            return null;
+        }
+        final Analysis result = new Analysis();
+        result.name = root.relativize(binFile.getParent().getParent()) + "/" + contractName(binFile);
+        result.metaFile = binFile.resolveSibling(contractName(binFile) + "_meta.json");
+        final byte[] code = decodeHex(hex, result);
+        decode(code, result);
+
+        final int hexLength = 2 * code.length;
+        result.appendChunks = (Math.max(0, hexLength - Utils.FILE_CREATE_MAX_BYTES) + FILE_APPEND_CHUNK_SIZE - 1) / FILE_APPEND_CHUNK_SIZE;
+        if (result.runtimeSize > MAX_RUNTIME_SIZE) {
+            result.warnings.add("runtime over EIP-170");
+        }
+        if (result.initSize > MAX_INIT_SIZE) {
+            result.warnings.add("init code over EIP-3860");
+        }
+        if (result.appendChunks > MAX_CHUNKS) {
+            result.warnings.add("over " + MAX_CHUNKS + " chunks");
+        }
+        if ((long) CODE_DEPOSIT_GAS * Math.max(0, result.runtimeSize) > DEPLOY_GAS) {
+            result.warnings.add("deposit over deploy gas");
+        }
+        if (result.linkPlaceholders > 0) {
+            result.warnings.add(result.linkPlaceholders + " library placeholder(s)");
+        }
+        return result;
+    }
+
+
+    //
+    // Private
+    //
+
+    private static void define(int op, int in, int out) {
+        STACK_IN[op] = (byte) in;
+        STACK_OUT[op] = (byte) out;
+    }
+
+    private static String contractName(Path binFile) {
+        final String fileName = binFile.getFileName().toString();
+        return fileName.substring(0, fileName.length() - ".bin".length());
+    }
+
+    /** Library placeholders (__$...$__) are decoded as zero addresses */
+    private static byte[] decodeHex(String hex, Analysis analysis) {
+        final byte[] result = new byte[hex.length() / 2];
+        for (int i = 0; i < result.length; i++) {
+            final char c = hex.charAt(2 * i);
+            if (c == '_' || c == '$') {
+                if (hex.startsWith("__$", 2 * i)) {
+                    analysis.linkPlaceholders += 1;
+                }
+                continue;
+            }
+            result[i] = (byte) ((Character.digit(c, 16) << 4) | Character.digit(hex.charAt(2 * i + 1), 16));
+        }
+        return result;
+    }
+
+    /**
+     * Single pass over the code: constants are followed on a small abstract stack (reset at each JUMPDEST)
+     * so that the CODECOPY copying the runtime code (constant offset and size, the copied range ending
+     * with a metadata trailer or at the end of the .bin) reveals where the runtime is.
+     * Decoding then restarts at the runtime start, aligned, and stops at its metadata trailer.
+     */
+    private static void decode(byte[] code, Analysis analysis) {
+        final long[] stack = new long[64];
+        int depth = 0;
+        // last 5 instructions, for the dispatcher pattern [DUPn] PUSH4 selector [DUPn] EQ PUSHn destination JUMPI
+        final int[] recentOps = new int[5];
+        final long[] recentValues = new long[5];
+
+        int end = code.length;
+        int runtimeStart = -1;
+        int runtimeEnd = -1;
+        boolean runtimeHasMetadata = false;
+        boolean inRuntime = false;
+        final TreeMap<Integer, Integer> embedded = new TreeMap<>(); // start -> end of code copied by the runtime
+        int pc = 0;
+        while (pc < end) {
+            if (!inRuntime && runtimeStart >= 0 && pc >= runtimeStart) {
+                inRuntime = true;
+                pc = runtimeStart;
+                depth = 0;
+                analysis.metadataSize = metadataSize(code, runtimeStart, runtimeEnd);
+                if (analysis.metadataSize > 0) {
+                    readMetadata(code, runtimeEnd - analysis.metadataSize, analysis);
+                }
+                end = runtimeEnd - analysis.metadataSize;
+                continue;
+            }
+            final Map.Entry<Integer, Integer> skip = inRuntime ? embedded.floorEntry(pc) : null;
+            if (skip != null && pc < skip.getValue()) {
+                pc = skip.getValue();
+                depth = 0;
+                continue;
+            }
+
+            final int op = code[pc] & 0xFF;
+            final int pushSize = op >= PUSH0 && op <= PUSH32 ? op - PUSH0 : 0;
+            long value = UNKNOWN;
+            if (pushSize > 0) {
+                // Only values fitting in 7 bytes are followed (offsets, sizes, selectors, destinations)
+                if (pushSize <= 7) {
+                    value = 0;
+                    for (int i = 1; i <= pushSize; i++) {
+                        value = (value << 8) | (pc + i < code.length ? code[pc + i] & 0xFF : 0);
+                    }
+                }
+            } else if (op == PUSH0) {
+                value = 0;
+            }
+
+            // 1) Stats and dispatcher
+            if (inRuntime) {
+                analysis.pushDataSize += Math.min(pushSize, end - pc - 1);
+                if (op == JUMPI) {
+                    matchDispatch(recentOps, recentValues, analysis);
+                }
+                System.arraycopy(recentOps, 1, recentOps, 0, recentOps.length - 1);
+                System.arraycopy(recentValues, 1, recentValues, 0, recentValues.length - 1);
+                recentOps[recentOps.length - 1] = op;
+                recentValues[recentValues.length - 1] = value;
+            }
+
+            // 2) Abstract stack
+            if (op == JUMPDEST || STACK_IN[op] < 0) {
+                depth = 0;
+            } else if (op >= DUP1 && op <= DUP16) {
+                final int n = op - DUP1 + 1;
+                depth = push(stack, depth, depth >= n ? stack[depth - n] : UNKNOWN);
+            } else if (op >= SWAP1 && op <= SWAP16) {
+                final int n = op - SWAP1 + 1;
+                if (depth > n) {
+                    final long top = stack[depth - 1];
+                    stack[depth - 1] = stack[depth - 1 - n];
+                    stack[depth - 1 - n] = top;
+                } else {
+                    depth = 0;
+                }
+            } else {
+                // The runtime is the first sub-assembly after the init code: the lowest copy ending with a metadata
+                // trailer (creation code of contracts created by the constructor and constructor data such as
+                // revert strings come after it), else a copy ending at the end of the .bin
+                if (op == CODECOPY && !inRuntime && depth >= 3) {
+                    final long offset = stack[depth - 2];
+                    final long size = stack[depth - 3];
+                    if (offset > pc && size > 0 && offset + size <= code.length) {
+                        final boolean hasMetadata = metadataSize(code, (int) offset, (int) (offset + size)) > 0;
+                        if (hasMetadata && (!runtimeHasMetadata || offset < runtimeStart)
+                                || !runtimeHasMetadata && runtimeStart < 0 && offset + size == code.length) {
+                            runtimeStart = (int) offset;
+                            runtimeEnd = (int) (offset + size);
+                            runtimeHasMetadata = hasMetadata;
+                        }
+                    }
+                }
+                // Creation code copied by the runtime is data, not runtime code (runtime offsets start at runtimeStart)
+                if (op == CODECOPY && inRuntime && depth >= 3 && stack[depth - 2] != UNKNOWN) {
+                    final long offset = runtimeStart + stack[depth - 2];
+                    final long size = stack[depth - 3];
+                    if (offset > pc && size > 0 && offset + size <= end
+                            && metadataSize(code, (int) offset, (int) (offset + size)) > 0
+                            && embedded.putIfAbsent((int) offset, (int) (offset + size)) == null) {
+                        analysis.embeddedSize += (int) size;
+                    }
+                }
+                depth = Math.max(0, depth - STACK_IN[op]);
+                for (int i = 0; i < STACK_OUT[op]; i++) {
+                    depth = push(stack, depth, value);
+                }
+            }
+
+            pc += 1 + pushSize;
+        }
+
+        if (runtimeStart >= 0) {
+            analysis.runtimeSize = runtimeEnd - runtimeStart;
+            analysis.initSize = code.length - analysis.runtimeSize;
+        } else {
+            analysis.initSize = code.length;
+        }
+    }
+
+    private static int push(long[] stack, int depth, long value) {
+        if (depth == stack.length) {
+            System.arraycopy(stack, 1, stack, 0, depth - 1);
+            depth -= 1;
+        }
+        stack[depth] = value;
+        return depth + 1;
+    }
+
+    private static void matchDispatch(int[] ops, long[] values, Analysis analysis) {
+        // ops[4] is PUSHn destination, ops[3] EQ, then PUSH4 selector possibly around a DUPn
+        final int n = ops.length;
+        if (ops[n - 1] < PUSH1 || ops[n - 1] > PUSH32 || ops[n - 2] != EQ) {
+            return;
+        }
+        int i = n - 3;
+        if (ops[i] >= DUP1 && ops[i] <= DUP16) {
+            i -= 1;
+        }
+        if (ops[i] == PUSH4) {
+            analysis.selectors.putIfAbsent((int) values[i], (int) values[n - 1]);
+        }
+    }
+
+    /** Size of the CBOR trailer (a map followed by its 2 byte length) ending code[start, end), 0 if absent */
+    private static int metadataSize(byte[] code, int start, int end) {
+        if (end - start < 2) {
+            return 0;
+        }
+        final int length = ((code[end - 2] & 0xFF) << 8) | (code[end - 1] & 0xFF);
+        final int mapStart = end - 2 - length;
+        if (length == 0 || mapStart < start || (code[mapStart] & 0xE0) != 0xA0) {
+            return 0;
+        }
+        return length + 2;
+    }
+
+    // { "ipfs" | "bzzr0" | "bzzr1": bytes, "solc": bytes(3) | text, "experimental": bool }
+    // The trailer is only trusted within its own bounds: a malformed one is reported as a warning
+    private static void readMetadata(byte[] code, int start, Analysis analysis) {
+        final int end = start + analysis.metadataSize - 2;
+        int p = start + 1;
+        final int entries = code[start] & 0x1F;
+        for (int e = 0; e < entries; e++) {
+            // key: text (major type 3) of at most 23 bytes
+            if (p >= end || (code[p] & 0xE0) != 0x60 || p + 1 + (code[p] & 0x1F) >= end) {
+                analysis.warnings.add("malformed metadata");
+                return;
+            }
+            final int keyLength = code[p] & 0x1F;
+            final String key = new String(code, p + 1, keyLength, StandardCharsets.US_ASCII);
+            p += 1 + keyLength;
+            final int major = (code[p] & 0xE0) >> 5;
+            int valueLength = code[p] & 0x1F;
+            int valueStart = p + 1;
+            if (major == 7) { // simple value (experimental: true)
+                valueLength = 0;
+            } else if (valueLength == 24 && valueStart < end) {
+                valueLength = code[p + 1] & 0xFF;
+                valueStart += 1;
+            }
+            if (valueStart + valueLength > end || major != 7 && (code[p] & 0x1F) > 24) {
+                analysis.warnings.add("malformed metadata");
+                return;
+            }
+            if (key.equals("solc")) {
+                analysis.solc = major == 2 && valueLength == 3
+                        ? (code[valueStart] & 0xFF) + "." + (code[valueStart + 1] & 0xFF) + "." + (code[valueStart + 2] & 0xFF)
+                        : new String(code, valueStart, valueLength, StandardCharsets.US_ASCII);
+            } else if (major == 2) {
+                analysis.metadataHash = key + ":" + toHex(code, valueStart, valueLength);
+            }
+            p = valueStart + valueLength;
+        }
+    }
+
+    /** selector -> signature for every function of the metadata ABI */
+    private static Map<Integer, String> readSignatures(Path metaFile) throws Exception {
+        final Map<Integer, String> result = new LinkedHashMap<>();
+        if (!Files.exists(metaFile)) {
+            return result;
+        }
+        final Keccak keccak = new Keccak();
+        try (final JsonReader jsonReader = Json.createReader(new StringReader(Files.readString(metaFile)))) {
+            final JsonObject o = jsonReader.readObject();
+            for (JsonObject entry : o.getJsonObject("output").getJsonArray("abi").getValuesAs(JsonObject.class)) {
+                if (!"function".equals(entry.getString("type"))) {
+                    continue;
+                }
+                final String signature = entry.getString("name") + canonicalTypes(entry, "inputs");
+                final byte[] hash = keccak.hash(signature.getBytes(StandardCharsets.US_ASCII));
+                final int selector = ((hash[0] & 0xFF) << 24) | ((hash[1] & 0xFF) << 16) | ((hash[2] & 0xFF) << 8) | (hash[3] & 0xFF);
+                result.put(selector, signature);
+            }
+        }
+        return result;
+    }
+
+    /** "(type1,type2...)" with tuples expanded, as in a function signature */
+    private static String canonicalTypes(JsonObject parent, String key) {
+        final List<String> types = new ArrayList<>();
+        for (JsonObject p : parent.getJsonArray(key).getValuesAs(JsonObject.class)) {
+            final String type = p.getString("type");
+            if (type.startsWith("tuple")) {
+                types.add(canonicalTypes(p, "components") + type.substring("tuple".length()));
+            } else {
+                types.add(type);
+            }
+        }
+        return "(" + String.join(",", types) + ")";
+    }
+
+    private static String toHex(byte[] bytes, int offset, int length) {
+        final StringBuilder result = new StringBuilder(2 * length);
+        for (int i = offset; i < offset + length; i++) {
+            result.append(Character.forDigit((bytes[i] >> 4) & 0xF, 16)).append(Character.forDigit(bytes[i] & 0xF, 16));
+        }
+        return result.toString();
+    }
+}
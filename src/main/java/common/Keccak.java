@@ -0,0 +1,104 @@
+package common;
+
+/**
+ * Keccak-256 as used by the EVM (original padding 0x01, not SHA3-256's 0x06).
+ * Not thread safe: the sponge state is owned by the instance.
+ */
+public final class Keccak {
+
+    private static final int RATE = 136;
+
+    private static final long[] ROUND_CONSTANTS = new long[] {
+            0x0000000000000001L, 0x0000000000008082L, 0x800000000000808aL, 0x8000000080008000L,
+            0x000000000000808bL, 0x0000000080000001L, 0x8000000080008081L, 0x8000000000008009L,
+            0x000000000000008aL, 0x0000000000000088L, 0x0000000080008009L, 0x000000008000000aL,
+            0x000000008000808bL, 0x800000000000008bL, 0x8000000000008089L, 0x8000000000008003L,
+            0x8000000000008002L, 0x8000000000000080L, 0x000000000000800aL, 0x800000008000000aL,
+            0x8000000080008081L, 0x8000000000008080L, 0x0000000080000001L, 0x8000000080008008L
+    };
+
+    private static final int[] ROTATIONS = new int[] {
+            0, 1, 62, 28, 27,
+            36, 44, 6, 55, 20,
+            3, 10, 43, 25, 39,
+            41, 45, 15, 21, 8,
+            18, 2, 61, 56, 14
+    };
+
+    private final long[] state = new long[25];
+    private final long[] b = new long[25];
+    private final long[] c = new long[5];
+    private final byte[] block = new byte[RATE];
+
+    /** Hashes data[offset, offset + length) into out[outOffset, outOffset + 32) */
+    public void hash(byte[] data, int offset, int length, byte[] out, int outOffset) {
+        java.util.Arrays.fill(state, 0);
+        int remaining = length;
+        int pos = offset;
+        while (remaining >= RATE) {
+            absorb(data, pos);
+            pos += RATE;
+            remaining -= RATE;
+        }
+        java.util.Arrays.fill(block, (byte) 0);
+        System.arraycopy(data, pos, block, 0, remaining);
+        block[remaining] ^= 0x01;
+        block[RATE - 1] ^= (byte) 0x80;
+        absorb(block, 0);
+        for (int i = 0; i < 32; i++) {
+            out[outOffset + i] = (byte) (state[i >>> 3] >>> (8 * (i & 7)));
+        }
+    }
+
+    public byte[] hash(byte[] data) {
+        final byte[] result = new byte[32];
+        hash(data, 0, data.length, result, 0);
+        return result;
+    }
+
+    //
+    // Private
+    //
+
+    private void absorb(byte[] data, int offset) {
+        for (int i = 0; i < RATE / 8; i++) {
+            long lane = 0;
+            for (int j = 7; j >= 0; j--) {
+                lane = (lane << 8) | (data[offset + 8 * i + j] & 0xFFL);
+            }
+            state[i] ^= lane;
+        }
+        permute();
+    }
+
+    private void permute() {
+        final long[] a = state;
+        for (int round = 0; round < 24; round++) {
+            // theta
+            for (int x = 0; x < 5; x++) {
+                c[x] = a[x] ^ a[x + 5] ^ a[x + 10] ^ a[x + 15] ^ a[x + 20];
+            }
+            for (int x = 0; x < 5; x++) {
+                final long d = c[(x + 4) % 5] ^ Long.rotateLeft(c[(x + 1) % 5], 1);
+                for (int y = 0; y < 25; y += 5) {
+                    a[y + x] ^= d;
+                }
+            }
+            // rho and pi
+            for (int x = 0; x < 5; x++) {
+                for (int y = 0; y < 5; y++) {
+                    final int i = x + 5 * y;
+                    b[y + 5 * ((2 * x + 3 * y) % 5)] = Long.rotateLeft(a[i], ROTATIONS[i]);
+                }
+            }
+            // chi
+            for (int y = 0; y < 25; y += 5) {
+                for (int x = 0; x < 5; x++) {
+                    a[y + x] = b[y + x] ^ (~b[y + (x + 1) % 5] & b[y + (x + 2) % 5]);
+                }
+            }
+            // iota
+            a[0] ^= ROUND_CONSTANTS[round];
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package common;
+
+import com.hedera.hashgraph.sdk.Client;
+import com.hedera.hashgraph.sdk.ContractByteCodeQuery;
+import com.hedera.hashgraph.sdk.ContractId;
+import com.hedera.hashgraph.sdk.PrecheckStatusException;
+
+import javax.json.Json;
+import javax.json.JsonObject;
+import javax.json.JsonReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.net.URI;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystemNotFoundException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+
+/**
+ * Links the library placeholders (__$ + 34 hex digits of keccak256("source:Library") + $__)
+ * of a .bin artifact. Libraries are looked up among the artifacts of the same class,
+ * deployed at most once per network (addresses are kept in libraries.NETWORK.properties,
+ * and checked on the network before being reused) and deployed concurrently when several are missing.
+ */
+public class Linker {
+
+    private static final String PLACEHOLDER_START = "__$";
+    private static final String PLACEHOLDER_END = "$__";
+    private static final int PLACEHOLDER_LENGTH = 40;
+
+    // library name@bytecode hash -> solidity address, for this run
+    private static final Map<String, CompletableFuture<String>> deployments = new ConcurrentHashMap<>();
+    private static final ExecutorService pool = Executors.newCachedThreadPool(r -> {
+        final Thread t = new Thread(r, "linker");
+        t.setDaemon(true);
+        return t;
+    });
+    private static Properties cache;
+
+    public static String link(String byteCode, Class<?> klass) throws Exception {
+        return link(byteCode, klass, Linker::resolve);
+    }
+
+    //
+    // Package
+    //
+
+    /** Solidity address of a library artifact, once deployed */
+    interface Resolver {
+        CompletableFuture<String> resolve(String contractName, Class<?> klass) throws Exception;
+    }
+
+    static String link(String byteCode, Class<?> klass, Resolver resolver) throws Exception {
+        if (!byteCode.contains(PLACEHOLDER_START)) {
+            return byteCode;
+        }
+
+        // 1) Finds placeholder positions, grouped by library hash
+        final char[] chars = byteCode.toCharArray();
+        final Map<String, List<Integer>> positions = new LinkedHashMap<>();
+        int i = byteCode.indexOf(PLACEHOLDER_START);
+        while (i >= 0) {
+            if (!byteCode.startsWith(PLACEHOLDER_END, i + PLACEHOLDER_LENGTH - PLACEHOLDER_END.length())) {
+                throw new IllegalStateException("Malformed library placeholder at offset " + i);
+            }
+            final String hash = byteCode.substring(i + PLACEHOLDER_START.length(), i + PLACEHOLDER_LENGTH - PLACEHOLDER_END.length());
+            positions.computeIfAbsent(hash, k -> new ArrayList<>()).add(i);
+            i = byteCode.indexOf(PLACEHOLDER_START, i + PLACEHOLDER_LENGTH);
+        }
+
+        // 2) Starts every missing library deployment before waiting for any of them
+        final Map<String, String> libraries = indexLibraries(klass);
+        final Map<String, CompletableFuture<String>> addresses = new LinkedHashMap<>();
+        for (String hash : positions.keySet()) {
+            final String contractName = libraries.get(hash);
+            if (contractName == null) {
+                throw new IllegalStateException("No artifact found for library placeholder __$" + hash + "$__");
+            }
+            addresses.put(hash, resolver.resolve(contractName, klass));
+        }
+
+        // 3) Patches the addresses over the placeholders
+        for (Map.Entry<String, List<Integer>> e : positions.entrySet()) {
+            final String address = addresses.get(e.getKey()).get();
+            for (int position : e.getValue()) {
+                address.getChars(0, PLACEHOLDER_LENGTH, chars, position);
+            }
+        }
+        return new String(chars);
+    }
+
+    /** placeholder hash -> artifact name, for every artifact next to klass */
+    static Map<String, String> indexLibraries(Class<?> klass) throws Exception {
+        final Map<String, String> result = new HashMap<>();
+        final Keccak keccak = new Keccak();
+        for (String contractName : listArtifacts(klass)) {
+            final String jsonText = Utils.readResourceString("artifacts/" + contractName + "_meta.json", klass);
+            try (final JsonReader jsonReader = Json.createReader(new StringReader(jsonText))) {
+                final JsonObject target = jsonReader.readObject().getJsonObject("settings").getJsonObject("compilationTarget");
+                for (String source : target.keySet()) {
+                    final String fullyQualifiedName = source + ":" + target.getString(source);
+                    final byte[] hash = keccak.hash(fullyQualifiedName.getBytes(StandardCharsets.UTF_8));
+                    result.put(toHex(hash).substring(0, 34), contractName);
+                }
+            }
+        }
+        return result;
+    }
+
+    //
+    // Private
+    //
+
+    private static List<String> listArtifacts(Class<?> klass) throws Exception {
+        final URL url = klass.getResource("artifacts");
+        if (url == null) {
+            return Collections.emptyList();
+        }
+        final URI uri = url.toURI();
+        if ("jar".equals(uri.getScheme())) {
+            try {
+                FileSystems.getFileSystem(uri);
+            } catch (FileSystemNotFoundException e) {
+                FileSystems.newFileSystem(uri, Collections.emptyMap());
+            }
+        }
+        final List<String> result = new ArrayList<>();
+        try (Stream<Path> files = Files.list(Path.of(uri))) {
+            files.map(p -> p.getFileName().toString())
+                    .filter(n -> n.endsWith("_meta.json"))
+                    .forEach(n -> result.add(n.substring(0, n.length() - "_meta.json".length())));
+        }
+        return result;
+    }
+
+    /** Solidity address of the library, from this run, from the network cache or from a new deployment */
+    private static CompletableFuture<String> resolve(String contractName, Class<?> klass) throws Exception {
+        final String byteCode = Utils.readResourceString("artifacts/" + contractName + ".bin", klass).trim();
+        final String cacheKey = contractName + "@" + toHex(new Keccak().hash(byteCode.getBytes(StandardCharsets.US_ASCII))).substring(0, 16);
+        final CompletableFuture<String> result = deployments.computeIfAbsent(cacheKey, k -> CompletableFuture.supplyAsync(() -> {
+            try {
+                final String cached = loadCache().getProperty(cacheKey);
+                if (cached != null && isDeployed(cached, byteCode)) {
+                    return cached;
+                }
+                // Utils.deploy links the library's own placeholders first
+                final ContractId contractId = Utils.deploy(contractName, contractName, null, null, klass);
+                final String address = contractId.toSolidityAddress();
+                storeCache(cacheKey, address);
+                return address;
+            } catch (Exception e) {
+                throw new IllegalStateException("Failed to deploy library " + contractName, e);
+            }
+        }, pool));
+        // A failed deployment is not cached: the next link of this library tries again
+        result.whenComplete((address, e) -> {
+            if (e != null) {
+                deployments.remove(cacheKey, result);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Whether the cached address still holds this library (the network may have been reset since).
+     * The runtime code must appear in the creation code, once its call protection address is zeroed.
+     */
+    private static boolean isDeployed(String address, String byteCode) throws Exception {
+        final String runtime;
+        try (Client client = Utils.createClient()) {
+            runtime = toHex(new ContractByteCodeQuery()
+                    .setContractId(ContractId.fromSolidityAddress(address))
+                    .execute(client)
+                    .toByteArray());
+        } catch (PrecheckStatusException e) {
+            System.out.println("Cached library address " + address + " is gone (" + e.status + "), deploying again");
+            return false;
+        }
+        // Libraries start with PUSH20 <own address> ADDRESS EQ, PUSH20 0 in the creation code
+        final String unprotected = runtime.startsWith("73") && runtime.length() >= 42
+                ? "73" + "0".repeat(40) + runtime.substring(42)
+                : runtime;
+        if (runtime.isEmpty() || !byteCode.contains(unprotected)) {
+            System.out.println("Cached library address " + address + " holds other code, deploying again");
+            return false;
+        }
+        return true;
+    }
+
+    private static synchronized Properties loadCache() throws IOException {
+        if (cache == null) {
+            cache = new Properties();
+            final Path path = getCachePath();
+            if (Files.exists(path)) {
+                try (InputStream is = Files.newInputStream(path)) {
+                    cache.load(is);
+                }
+            }
+        }
+        return cache;
+    }
+
+    private static synchronized void storeCache(String key, String address) throws IOException {
+        loadCache().setProperty(key, address);
+        try (OutputStream os = Files.newOutputStream(getCachePath())) {
+            cache.store(os, "Deployed libraries (name@bytecode hash = solidity address)");
+        }
+    }
+
+    private static Path getCachePath() {
+        return Path.of(System.getProperty("user.dir"), "libraries." + Utils.getHederaNetwork() + ".properties");
+    }
+
+    private static String toHex(byte[] bytes) {
+        final StringBuilder result = new StringBuilder(2 * bytes.length);
+        for (byte b : bytes) {
+            result.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return result.toString();
+    }
+}
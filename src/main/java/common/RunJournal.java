@@ -0,0 +1,319 @@
+package common;
+
+import com.hedera.hashgraph.sdk.Client;
+import com.hedera.hashgraph.sdk.FileDeleteTransaction;
+import com.hedera.hashgraph.sdk.FileId;
+import com.hedera.hashgraph.sdk.PrecheckStatusException;
+import com.hedera.hashgraph.sdk.ReceiptStatusException;
+import com.hedera.hashgraph.sdk.TransactionId;
+import com.hedera.hashgraph.sdk.TransactionReceipt;
+
+import javax.json.Json;
+import javax.json.JsonObject;
+import javax.json.JsonReader;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Checkpoint journal of an album run (run-RUNID.journal next to deployment.log).
+ * Every step (token, account, byte code upload, contract create, execution) is journaled
+ * with its transaction id before being sent, and with its result once its receipt is back.
+ * Opening an existing run replays the completed steps instead of sending them again;
+ * steps sent but never confirmed are settled first from the mirror node, queried concurrently
+ * (receipts only live a few minutes), and only sent again when their transaction never happened.
+ * Without an open run, steps are simply executed. A run that completes deletes its journal.
+ */
+public class RunJournal {
+
+    public interface Step {
+        TransactionReceipt execute(TransactionId transactionId) throws Exception;
+    }
+
+    private static final String BEGIN = "BEGIN";
+    private static final String DONE = "DONE";
+    private static final String FAIL = "FAIL";
+
+    // A transaction absent from the mirror node this long after its valid start never happened
+    // (120s valid duration, plus time for the mirror node to import the record)
+    private static final Duration SETTLE_AFTER = Duration.ofSeconds(180);
+    private static final Duration POLL_INTERVAL = Duration.ofSeconds(5);
+
+    private static RunJournal current;
+
+    private final Path path;
+    private final String hederaNetwork;
+    private final Map<String, String> completed = new HashMap<>();      // step key -> result
+    private final Map<String, Integer> occurrences = new HashMap<>();   // kind:name -> steps seen in this run
+
+    public static String newRunId() {
+        return new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+    }
+
+    public static synchronized void open(String runId) throws Exception {
+        assert(current == null);
+        current = new RunJournal(runId, Path.of(System.getProperty("user.dir"), "run-" + runId + ".journal"),
+                Utils.getHederaNetwork());
+    }
+
+    public static synchronized void close() {
+        current = null;
+    }
+
+    /** Closes a run that went through: its journal is no longer needed */
+    public static synchronized void complete() throws Exception {
+        if (current != null) {
+            Files.deleteIfExists(current.path);
+            current = null;
+        }
+    }
+
+    /** Executes the step, or returns its journaled result when an earlier attempt of this run completed it */
+    public static String step(String kind, String name, Step step) throws Exception {
+        final RunJournal journal;
+        synchronized (RunJournal.class) {
+            journal = current;
+        }
+        if (journal == null) {
+            return resultOf(kind, step.execute(TransactionId.generate(Utils.getOperatorId())));
+        }
+        return journal.run(kind, name, step);
+    }
+
+    /** Deletes a byte code file; a failure (e.g. the file is already deleted) is reported but not thrown */
+    public static void deleteFile(String fileId, Client client) {
+        try {
+            new FileDeleteTransaction().setFileId(FileId.fromString(fileId)).execute(client).getReceipt(client);
+            System.out.println("Deleted byte code file " + fileId);
+        } catch (Exception e) {
+            System.out.println("Byte code file " + fileId + " not deleted: " + e.getMessage());
+        }
+    }
+
+    //
+    // Package
+    //
+
+    /** Replays the journal at path, if any, then settles its unconfirmed steps on hederaNetwork */
+    RunJournal(String runId, Path path, String hederaNetwork) throws Exception {
+        this.path = path;
+        this.hederaNetwork = hederaNetwork;
+
+        if (!Files.exists(path)) {
+            System.out.println("Starting run " + runId + " (pass this run id to Main to resume it)");
+            append("RUN", runId, hederaNetwork);
+            return;
+        }
+
+        // 1) Replays the journal
+        final Map<String, String> uncertain = new LinkedHashMap<>(); // step key -> transaction id
+        for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+            final String[] fields = line.split("\t", -1);
+            switch (fields[0]) {
+                case "RUN":
+                    if (!fields[2].equals(hederaNetwork)) {
+                        throw new IllegalStateException("Run " + runId + " was started on " + fields[2] + ", not " + hederaNetwork);
+                    }
+                    break;
+                case BEGIN:
+                    uncertain.put(fields[1], fields[2]);
+                    break;
+                case DONE:
+                    uncertain.remove(fields[1]);
+                    completed.put(fields[1], fields[2]);
+                    break;
+                case FAIL:
+                    uncertain.remove(fields[1]);
+                    break;
+                default:
+                    throw new IllegalStateException("Unexpected line in " + path + ": " + line);
+            }
+        }
+        System.out.println("Resuming run " + runId + ": " + completed.size() + " step(s) completed, "
+                + uncertain.size() + " to settle");
+
+        // 2) Settles steps sent but not confirmed
+        if (!uncertain.isEmpty()) {
+            settle(uncertain);
+        }
+    }
+
+    String run(String kind, String name, Step step) throws Exception {
+        final String key = nextKey(kind, name);
+        final String done = completed.get(key);
+        if (done != null) {
+            System.out.println("Resumed " + key + " = " + done);
+            return done;
+        }
+        final TransactionId transactionId = TransactionId.generate(Utils.getOperatorId());
+        append(BEGIN, key, transactionId.toString());
+        final String result;
+        try {
+            result = resultOf(kind, step.execute(transactionId));
+        } catch (ReceiptStatusException e) {
+            append(FAIL, key, e.receipt.status.toString());
+            throw e;
+        } catch (PrecheckStatusException e) {
+            append(FAIL, key, e.status.toString());
+            throw e;
+        }
+        append(DONE, key, result);
+        return result;
+    }
+
+    /** kind:name#n, n counting the steps of that kind and name in this run */
+    synchronized String nextKey(String kind, String name) {
+        final String kindName = kind + ":" + name;
+        final int n = occurrences.merge(kindName, 1, Integer::sum);
+        return kindName + "#" + n;
+    }
+
+    static String resultOf(String kind, TransactionReceipt receipt) {
+        switch (kind) {
+            case "token":
+                return receipt.tokenId.toString();
+            case "account":
+                return receipt.accountId.toString();
+            case "upload":
+                return receipt.fileId.toString();
+            case "contract":
+                return receipt.contractId.toString();
+            default:
+                return receipt.status.toString();
+        }
+    }
+
+    //
+    // Private
+    //
+
+    private void settle(Map<String, String> uncertain) throws Exception {
+        final String mirrorNodeUrl = getMirrorNodeUrl();
+        final ExecutorService pool = Executors.newFixedThreadPool(Math.min(uncertain.size(), 8));
+        final Map<String, Future<JsonObject>> transactions = new LinkedHashMap<>();
+        try {
+            for (Map.Entry<String, String> e : uncertain.entrySet()) {
+                final TransactionId transactionId = TransactionId.fromString(e.getValue());
+                transactions.put(e.getKey(), pool.submit(() -> lookup(mirrorNodeUrl, transactionId)));
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        try (Client client = Utils.createClient()) {
+            for (String key : uncertain.keySet()) {
+                final String kind = kindOf(key);
+                final JsonObject transaction = transactions.get(key).get();
+                final String status = transaction != null ? transaction.getString("result") : null;
+                final String entityId = transaction != null && !transaction.isNull("entity_id") ? transaction.getString("entity_id") : null;
+                String result = null;
+                if (kind.equals("upload")) {
+                    // A partially appended file cannot be completed: it is deleted and the byte code uploaded again
+                    if (entityId != null) {
+                        deleteFile(entityId, client);
+                    }
+                } else if (kind.equals("execute")) {
+                    // A failed execution did run and is not repeated
+                    result = status;
+                } else if ("SUCCESS".equals(status)) {
+                    result = entityId;
+                }
+
+                if (result != null) {
+                    append(DONE, key, result);
+                    completed.put(key, result);
+                    System.out.println("Settled " + key + " = " + result);
+                    // The contract went through but its byte code file may not have been deleted
+                    final String fileId = kind.equals("contract") ? completed.get("upload:" + key.substring("contract:".length())) : null;
+                    if (fileId != null) {
+                        deleteFile(fileId, client);
+                    }
+                } else {
+                    final String reason = status == null ? "never reached consensus" : kind.equals("upload") ? "upload incomplete" : status;
+                    append(FAIL, key, reason);
+                    System.out.println("Settled " + key + " as not done (" + reason + "), it will be sent again");
+                }
+            }
+        }
+    }
+
+    /**
+     * The transaction as recorded by the mirror node, or null once it is certain it never reached consensus.
+     * Waits for the end of the transaction's valid duration rather than trusting a record not imported yet.
+     */
+    private static JsonObject lookup(String mirrorNodeUrl, TransactionId transactionId) throws Exception {
+        final Instant validStart = transactionId.validStart;
+        final String id = transactionId.accountId + "-" + validStart.getEpochSecond() + "-" + String.format("%09d", validStart.getNano());
+        final URL url = new URL(mirrorNodeUrl + "/api/v1/transactions/" + id);
+        while (true) {
+            final HttpURLConnection c = (HttpURLConnection) url.openConnection();
+            c.setRequestProperty("Accept", "application/json");
+            final int status = c.getResponseCode();
+            if (status == HttpURLConnection.HTTP_OK) {
+                try (InputStream is = c.getInputStream(); JsonReader jsonReader = Json.createReader(is)) {
+                    // The transaction itself, not a child (nonce > 0) or scheduled one; SUCCESS first if it was sent twice
+                    JsonObject result = null;
+                    for (JsonObject t : jsonReader.readObject().getJsonArray("transactions").getValuesAs(JsonObject.class)) {
+                        if (t.getInt("nonce", 0) == 0 && !t.getBoolean("scheduled", false)
+                                && (result == null || "SUCCESS".equals(t.getString("result")))) {
+                            result = t;
+                        }
+                    }
+                    if (result != null) {
+                        return result;
+                    }
+                }
+            } else if (status != HttpURLConnection.HTTP_NOT_FOUND) {
+                throw new IllegalStateException("Mirror node answered " + status + " for transaction " + transactionId
+                        + ", the run cannot be settled yet");
+            }
+            c.disconnect();
+            if (Instant.now().isAfter(validStart.plus(SETTLE_AFTER))) {
+                return null;
+            }
+            Thread.sleep(POLL_INTERVAL.toMillis());
+        }
+    }
+
+    private String getMirrorNodeUrl() {
+        final String url = Utils.getEnv("MIRROR_NODE_URL");
+        if (url != null) {
+            return url;
+        }
+        switch (hederaNetwork) {
+            case "mainnet":
+                return "https://mainnet-public.mirrornode.hedera.com";
+            case "testnet":
+            case "previewnet":
+                return "https://" + hederaNetwork + ".mirrornode.hedera.com";
+            case "localhost":
+            case "local-node":
+                return "http://localhost:5551";
+            default:
+                throw new IllegalStateException("No mirror node known for " + hederaNetwork + ", set MIRROR_NODE_URL in ~/.env");
+        }
+    }
+
+    private static String kindOf(String key) {
+        return key.substring(0, key.indexOf(':'));
+    }
+
+    private synchronized void append(String type, String key, String value) throws Exception {
+        final String line = type + "\t" + key + "\t" + value + "\n";
+        Files.writeString(path, line, StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.DSYNC);
+    }
+}
@@ -4,6 +4,7 @@ import javax.json.Json;
 import javax.json.JsonObject;
 import javax.json.JsonReader;
 
+import com.google.protobuf.ByteString;
 import com.hedera.hashgraph.sdk.*;
 import io.github.cdimascio.dotenv.Dotenv;
 
@@ -15,115 +16,167 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
 import java.time.Duration;
+import java.util.Arrays;
 import java.util.Date;
 
 public class Utils {
 
+    static final int FILE_CREATE_MAX_BYTES = 2048; // hex chars of byte code sent with FileCreate, the rest is appended
+
     public static void main(String[] args) {
         System.out.println(System.getProperty("user.dir"));
     }
 
-    public static void deploy(String baseName, String contractName,
-                              ContractFunctionParameters params,
-                              ContractExecuteTransaction[] executions,
-                              Class<?> klass) throws Exception {
+    public static ContractId deploy(String baseName, String contractName,
+                                    ContractFunctionParameters params,
+                                    ContractExecuteTransaction[] executions,
+                                    Class<?> klass) throws Exception {
         assert(baseName != null);
         assert(contractName != null);
 
-        // 1) Reads byte code and compiler version
-        final String byteCode = readResourceString("artifacts/" + contractName + ".bin", klass);
+        // 1) Reads (and links) byte code and compiler version
+        final String byteCode = Linker.link(readResourceString("artifacts/" + contractName + ".bin", klass), klass);
         final String compilerVersion = readCompilerVersionFromMetadata("artifacts/" + contractName + "_meta.json", klass).trim();
 
         // 2) Creates Client
-        final Client client = createClient();
         final String hederaNetwork = getHederaNetwork();
+        final ContractId contractId;
+        try (Client client = createClient()) {
+
+            // 3) Uploads byte code (same steps as ContractCreateFlow, journaled one by one)
+            final FileId fileId = FileId.fromString(RunJournal.step("upload", contractName,
+                    transactionId -> uploadByteCode(byteCode, transactionId, client)));
+
+            // 4) Deploys contract and logs deployment
+            final String memo = baseName + ".sol + solc " + compilerVersion;
+            final ContractCreateTransaction createContract = new ContractCreateTransaction()
+                    .setBytecodeFileId(fileId)
+                    .setContractMemo(memo)
+                    .setGas(2_000_000);
+            if (params != null) {
+                createContract.setConstructorParameters(params);
+            }
 
-        // 3) Deploys contract
-        final String memo = baseName + ".sol + solc " + compilerVersion;
-        final ContractCreateFlow createContract = new ContractCreateFlow()
-                .setBytecode(byteCode)
-                .setContractMemo(memo)
-                .setGas(2_000_000)
-                .setMaxChunks(40);
-        if (params != null) {
-            createContract.setConstructorParameters(params);
+            contractId = ContractId.fromString(RunJournal.step("contract", contractName, transactionId -> {
+                final TransactionReceipt receipt = createContract
+                        .setTransactionId(transactionId)
+                        .execute(client)
+                        .getReceipt(client);
+                assert(receipt.contractId != null);
+
+                final String logRecord = new Date() + " " + hederaNetwork + " " + receipt.contractId + " " + contractName + "\n";
+                writeToLog(logRecord);
+                return receipt;
+            }));
+            // Outside the step: a failed delete must not fail the step and deploy the contract again on resume
+            RunJournal.deleteFile(fileId.toString(), client);
+
+            // 5) Executes contract (waits for each receipt so that the run journal can confirm it)
+            if (executions != null) {
+                for (int i = 0; i < executions.length; i++) {
+                    final ContractExecuteTransaction e = executions[i];
+                    e.setContractId(contractId);
+                    e.setGas(2_000_000);
+                    RunJournal.step("execute", contractName + "." + i, transactionId -> {
+                        final TransactionResponse response = e.setTransactionId(transactionId).execute(client);
+                        return new TransactionReceiptQuery().setTransactionId(response.transactionId).execute(client);
+                    });
+                }
+            }
         }
 
-        final TransactionResponse response = createContract.execute(client);
-        final TransactionReceipt receipt = response.getReceipt(client);
-        final ContractId contractId = receipt.contractId;
-        assert(contractId != null);
-
-        // 4) Executes contract
-        if (executions != null) {
-            for (ContractExecuteTransaction e : executions) {
-                e.setContractId(contractId);
-                e.setGas(2_000_000);
-                e.execute(client);
-            }
+        // 6) UX
+        System.out.println(baseName + ".sol deployed successfully to contract " + contractId + " (" + hederaNetwork + ")");
+
+        return contractId;
+    }
+
+    public static ContractFunctionResult call(ContractId contractId, String functionName,
+                                              ContractFunctionParameters params) throws Exception {
+        try (Client client = createClient()) {
+            return call(client, contractId, functionName, params);
         }
+    }
 
-        // 5) Logs deployment
-        final String logRecord = new Date() + " " + hederaNetwork + " " + contractId + " " + contractName + "\n";
-        writeToLog(logRecord);
+    /** Same as call() on a client owned by the caller, for batches of queries */
+    public static ContractFunctionResult call(Client client, ContractId contractId, String functionName,
+                                              ContractFunctionParameters params) throws Exception {
+        return new ContractCallQuery()
+                .setContractId(contractId)
+                .setGas(100_000)
+                .setFunction(functionName, params)
+                .execute(client);
+    }
 
-        // 6) UX
-        if (receipt.status == Status.SUCCESS) {
-            System.out.println(baseName + ".sol deployed successfully to contract " + contractId + " (" + hederaNetwork + ")");
-        } else {
-            System.out.println(baseName + ".sol deployment failed with status " + receipt.status);
+    /** Executes pre-encoded call data (selector included), for arguments ContractFunctionParameters cannot encode */
+    public static TransactionReceipt execute(ContractId contractId, byte[] callData) throws Exception {
+        try (Client client = createClient()) {
+            return new ContractExecuteTransaction()
+                    .setContractId(contractId)
+                    .setGas(2_000_000)
+                    .setFunctionParameters(ByteString.copyFrom(callData))
+                    .execute(client)
+                    .getReceipt(client);
         }
     }
 
     public static AccountId createAccount() throws Exception {
 
         // 1) Creates client
-        final Client client = createClient();
         final String hederaNetwork = getHederaNetwork();
 
-        // 2) Creates account
-        final TransactionResponse response = new AccountCreateTransaction()
-                .setKey(getOperatorPublicKey())
-                .setInitialBalance(Hbar.from(100))
-                .execute(client);
-        final TransactionReceipt receipt = response.getReceipt(client);
-        final AccountId result = receipt.accountId;
-        assert(result != null);
-
-        // 3) Logs
-        final String logRecord = new Date() + " " + hederaNetwork + " " + result + " Account\n";
-        writeToLog(logRecord);
+        final String accountId;
+        try (Client client = createClient()) {
+            // 2) Creates account and logs
+            accountId = RunJournal.step("account", "Account", transactionId -> {
+                final TransactionResponse response = new AccountCreateTransaction()
+                        .setTransactionId(transactionId)
+                        .setKey(getOperatorPublicKey())
+                        .setInitialBalance(Hbar.from(100))
+                        .execute(client);
+                final TransactionReceipt receipt = response.getReceipt(client);
+                assert(receipt.accountId != null);
+
+                final String logRecord = new Date() + " " + hederaNetwork + " " + receipt.accountId + " Account\n";
+                writeToLog(logRecord);
+                return receipt;
+            });
+        }
 
-        return result;
+        return AccountId.fromString(accountId);
     }
 
     public static TokenId createToken() throws Exception {
 
         // 1) Creates client
-        final Client client = createClient();
         final String hederaNetwork = getHederaNetwork();
         final PublicKey operatorPublicKey = getOperatorPublicKey();
 
-        // 2) Creates token
-        final TransactionResponse response = new TokenCreateTransaction()
-                .setTokenSymbol("LFLG")
-                .setTokenName("Grenoble Le Versoud")
-                .setTokenMemo("Created by hedera-contract-album")
-                .setTokenType(TokenType.FUNGIBLE_COMMON)
-                .setDecimals(2)
-                .setInitialSupply(10000)
-                .setTreasuryAccountId(getOperatorId())
-                .setSupplyKey(operatorPublicKey)
-                .execute(client);
-        final TransactionReceipt receipt = response.getReceipt(client);
-        final TokenId result = receipt.tokenId;
-        assert(result != null);
-
-        // 3) Logs
-        final String logRecord = new Date() + " " + hederaNetwork + " " + result + " Token\n";
-        writeToLog(logRecord);
+        final String tokenId;
+        try (Client client = createClient()) {
+            // 2) Creates token and logs
+            tokenId = RunJournal.step("token", "Token", transactionId -> {
+                final TransactionResponse response = new TokenCreateTransaction()
+                        .setTransactionId(transactionId)
+                        .setTokenSymbol("LFLG")
+                        .setTokenName("Grenoble Le Versoud")
+                        .setTokenMemo("Created by hedera-contract-album")
+                        .setTokenType(TokenType.FUNGIBLE_COMMON)
+                        .setDecimals(2)
+                        .setInitialSupply(10000)
+                        .setTreasuryAccountId(getOperatorId())
+                        .setSupplyKey(operatorPublicKey)
+                        .execute(client);
+                final TransactionReceipt receipt = response.getReceipt(client);
+                assert(receipt.tokenId != null);
+
+                final String logRecord = new Date() + " " + hederaNetwork + " " + receipt.tokenId + " Token\n";
+                writeToLog(logRecord);
+                return receipt;
+            });
+        }
 
-        return result;
+        return TokenId.fromString(tokenId);
     }
 
 
@@ -131,7 +184,39 @@ public class Utils {
     // Private
     //
 
-    private static Client createClient() {
+    /** Creates the byte code file with the first chunk and appends the rest, as ContractCreateFlow does */
+    private static TransactionReceipt uploadByteCode(String byteCode, TransactionId transactionId, Client client) throws Exception {
+        final byte[] contents = byteCode.getBytes(StandardCharsets.US_ASCII);
+        final int firstChunkLength = Math.min(contents.length, FILE_CREATE_MAX_BYTES);
+        final TransactionReceipt result = new FileCreateTransaction()
+                .setTransactionId(transactionId)
+                .setKeys(getOperatorPublicKey())
+                .setContents(Arrays.copyOf(contents, firstChunkLength))
+                .execute(client)
+                .getReceipt(client);
+        assert(result.fileId != null);
+        if (contents.length > firstChunkLength) {
+            try {
+                new FileAppendTransaction()
+                        .setFileId(result.fileId)
+                        .setContents(Arrays.copyOfRange(contents, firstChunkLength, contents.length))
+                        .setMaxChunks(40)
+                        .execute(client)
+                        .getReceipt(client);
+            } catch (Exception e) {
+                // A partial file is never used: the byte code is uploaded again from scratch
+                try {
+                    new FileDeleteTransaction().setFileId(result.fileId).execute(client);
+                } catch (Exception d) {
+                    e.addSuppressed(d);
+                }
+                throw e;
+            }
+        }
+        return result;
+    }
+
+    public static Client createClient() {
 
         final String envPath = System.getProperty("user.home") + "/.env";
         final Dotenv dotEnv = Dotenv.configure().directory(envPath).load();
@@ -164,12 +249,19 @@ public class Utils {
         return operatorKey.getPublicKey();
     }
 
-    private static String getHederaNetwork() {
+    static String getHederaNetwork() {
         final String envPath = System.getProperty("user.home") + "/.env";
         final Dotenv dotEnv = Dotenv.configure().directory(envPath).load();
         return dotEnv.get("HEDERA_NETWORK");
     }
 
+    /** Optional setting from ~/.env (or the environment), null when absent */
+    public static String getEnv(String name) {
+        final String envPath = System.getProperty("user.home") + "/.env";
+        final Dotenv dotEnv = Dotenv.configure().directory(envPath).load();
+        return dotEnv.get(name);
+    }
+
     public static String readResourceString(String resourceName, Class<?> klass) throws IOException {
         final byte[] bytes;
         try (InputStream is = klass.getResourceAsStream(resourceName)) {
@@ -0,0 +1,251 @@
+package nayms;
+
+import com.hedera.hashgraph.sdk.ContractFunctionParameters;
+import com.hedera.hashgraph.sdk.ContractId;
+import com.hedera.hashgraph.sdk.TransactionReceipt;
+import common.Keccak;
+import common.Utils;
+
+import javax.json.Json;
+import javax.json.JsonObject;
+import javax.json.JsonReader;
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * EIP-2535 deployment of the Nayms diamond: the diamond and the facets its constructor does not
+ * register are deployed concurrently, then those facets are registered with a single diamondCut()
+ * sent by the diamond owner.
+ * Selectors come from each facet's metadata ABI and collisions are rejected before anything is sent.
+ */
+public class Diamond {
+
+    // Facets of the album. Those whose creation code is embedded in Nayms.bin are deployed and
+    // registered by the Nayms constructor (LibDiamond.addDiamondFunctions): they are not deployed or cut again.
+    // OwnershipFacet is not: it is deployed alongside the diamond and replaces NaymsOwnershipFacet's selectors
+    public static final List<String> FACETS = List.of(
+            "DiamondCutFacet",
+            "DiamondLoupeFacet",
+            "NaymsOwnershipFacet",
+            "OwnershipFacet");
+
+    // IDiamondCut.FacetCutAction
+    private static final int ADD = 0;
+    private static final int REPLACE = 1;
+
+    public static void main(String[] args) throws Exception {
+        deploy(FACETS);
+    }
+
+    public static ContractId deploy(List<String> facetNames) throws Exception {
+
+        // 1) Leaves out the facets the constructor registers, computes selectors and rejects collisions locally
+        final List<String> constructorFacets = constructorFacets(facetNames);
+        final Map<Integer, String> registered = new LinkedHashMap<>();
+        for (String facetName : constructorFacets) {
+            registered.putAll(readSelectors(facetName));
+        }
+        final Map<String, Map<Integer, String>> facetSelectors = new LinkedHashMap<>();
+        for (String facetName : facetNames) {
+            if (!constructorFacets.contains(facetName)) {
+                facetSelectors.put(facetName, readSelectors(facetName));
+            }
+        }
+        checkCollisions(facetSelectors);
+
+        // 2) Deploys the diamond and the remaining facets concurrently
+        final ExecutorService pool = Executors.newFixedThreadPool(facetSelectors.size() + 1);
+        final Map<String, Future<ContractId>> facetIds = new LinkedHashMap<>();
+        final Future<ContractId> diamondId;
+        try {
+            final ContractFunctionParameters params = new ContractFunctionParameters()
+                    .addAddress(Utils.getOperatorId().toSolidityAddress()); // owner, who sends the diamondCut
+            diamondId = pool.submit(() -> Utils.deploy("Nayms", "Nayms", params, null, Nayms.class));
+            for (String facetName : facetSelectors.keySet()) {
+                facetIds.put(facetName, pool.submit(() -> Utils.deploy(facetName, facetName, null, null, Nayms.class)));
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        // 3) Registers them with one diamondCut, unless the constructor already registered everything
+        final List<FacetCut> cuts = new ArrayList<>();
+        for (Map.Entry<String, Map<Integer, String>> e : facetSelectors.entrySet()) {
+            final String facetAddress = facetIds.get(e.getKey()).get().toSolidityAddress();
+            final FacetCut add = new FacetCut(facetAddress, ADD);
+            final FacetCut replace = new FacetCut(facetAddress, REPLACE);
+            for (int selector : e.getValue().keySet()) {
+                (registered.containsKey(selector) ? replace : add).selectors.add(selector);
+            }
+            for (FacetCut cut : List.of(replace, add)) {
+                if (!cut.selectors.isEmpty()) {
+                    cuts.add(cut);
+                }
+            }
+        }
+        final ContractId result = diamondId.get();
+        if (cuts.isEmpty()) {
+            System.out.println("Nayms diamondCut: skipped, every facet is registered by the constructor");
+        } else {
+            final TransactionReceipt receipt = Utils.execute(result, encodeDiamondCut(cuts));
+            System.out.println("Nayms diamondCut: " + cuts.size() + " facet cut(s), status " + receipt.status);
+        }
+
+        return result;
+    }
+
+    //
+    // Package
+    //
+
+    static class FacetCut {
+        final String facetAddress;
+        final int action;
+        final List<Integer> selectors = new ArrayList<>();
+
+        FacetCut(String facetAddress, int action) {
+            this.facetAddress = facetAddress;
+            this.action = action;
+        }
+    }
+
+    /** Facets of FACETS and facetNames whose creation code is embedded in Nayms.bin */
+    static List<String> constructorFacets(List<String> facetNames) throws Exception {
+        final List<String> result = new ArrayList<>();
+        final String naymsByteCode = Utils.readResourceString("artifacts/Nayms.bin", Nayms.class).trim();
+        final Set<String> candidates = new LinkedHashSet<>(FACETS);
+        candidates.addAll(facetNames);
+        for (String facetName : candidates) {
+            final String facetByteCode = Utils.readResourceString("artifacts/" + facetName + ".bin", Nayms.class).trim();
+            if (!facetByteCode.isEmpty() && naymsByteCode.contains(facetByteCode)) {
+                result.add(facetName);
+            }
+        }
+        return result;
+    }
+
+    /** selector -> signature for every function of the facet ABI */
+    static Map<Integer, String> readSelectors(String facetName) throws Exception {
+        final Map<Integer, String> result = new LinkedHashMap<>();
+        final Keccak keccak = new Keccak();
+        final String jsonText = Utils.readResourceString("artifacts/" + facetName + "_meta.json", Nayms.class);
+        try (final JsonReader jsonReader = Json.createReader(new StringReader(jsonText))) {
+            final JsonObject o = jsonReader.readObject();
+            for (JsonObject entry : o.getJsonObject("output").getJsonArray("abi").getValuesAs(JsonObject.class)) {
+                if (!"function".equals(entry.getString("type"))) {
+                    continue;
+                }
+                final String signature = entry.getString("name") + canonicalTypes(entry, "inputs");
+                final byte[] hash = keccak.hash(signature.getBytes(StandardCharsets.US_ASCII));
+                final int selector = ((hash[0] & 0xFF) << 24) | ((hash[1] & 0xFF) << 16) | ((hash[2] & 0xFF) << 8) | (hash[3] & 0xFF);
+                result.put(selector, signature);
+            }
+        }
+        return result;
+    }
+
+    static void checkCollisions(Map<String, Map<Integer, String>> facetSelectors) {
+        final Map<Integer, String> owners = new LinkedHashMap<>();
+        final List<String> collisions = new ArrayList<>();
+        for (Map.Entry<String, Map<Integer, String>> e : facetSelectors.entrySet()) {
+            for (Map.Entry<Integer, String> s : e.getValue().entrySet()) {
+                final String previous = owners.putIfAbsent(s.getKey(), e.getKey());
+                if (previous != null) {
+                    collisions.add(String.format("0x%08x %s in %s and %s", s.getKey(), s.getValue(), previous, e.getKey()));
+                }
+            }
+        }
+        if (!collisions.isEmpty()) {
+            throw new IllegalStateException("Selector collision(s): " + String.join("; ", collisions));
+        }
+    }
+
+    /** diamondCut((address,uint8,bytes4[])[] _diamondCut, address _init, bytes _calldata) with no init call */
+    static byte[] encodeDiamondCut(List<FacetCut> cuts) {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.writeBytes(new byte[] { (byte) 0x1f, (byte) 0x93, (byte) 0x1c, (byte) 0x1c }); // IDiamondCut.diamondCut.selector
+
+        // head: offset of _diamondCut, _init, offset of _calldata
+        final List<byte[]> tuples = new ArrayList<>();
+        int cutsSize = 32 + 32 * cuts.size();
+        for (FacetCut cut : cuts) {
+            final ByteArrayOutputStream tuple = new ByteArrayOutputStream();
+            tuple.writeBytes(word(cut.facetAddress));
+            tuple.writeBytes(word(cut.action));
+            tuple.writeBytes(word(96));
+            tuple.writeBytes(word(cut.selectors.size()));
+            for (int selector : cut.selectors) {
+                final byte[] w = new byte[32];
+                w[0] = (byte) (selector >>> 24);
+                w[1] = (byte) (selector >>> 16);
+                w[2] = (byte) (selector >>> 8);
+                w[3] = (byte) selector;
+                tuple.writeBytes(w);
+            }
+            tuples.add(tuple.toByteArray());
+            cutsSize += tuple.size();
+        }
+        out.writeBytes(word(96));
+        out.writeBytes(word(0));
+        out.writeBytes(word(96 + cutsSize));
+
+        // _diamondCut: length, offsets relative to the first offset, tuples
+        out.writeBytes(word(cuts.size()));
+        int offset = 32 * cuts.size();
+        for (byte[] tuple : tuples) {
+            out.writeBytes(word(offset));
+            offset += tuple.length;
+        }
+        for (byte[] tuple : tuples) {
+            out.writeBytes(tuple);
+        }
+
+        // _calldata: empty bytes
+        out.writeBytes(word(0));
+        return out.toByteArray();
+    }
+
+    //
+    // Private
+    //
+
+    /** "(type1,type2...)" with tuples expanded, as in a function signature */
+    private static String canonicalTypes(JsonObject parent, String key) {
+        final List<String> types = new ArrayList<>();
+        for (JsonObject p : parent.getJsonArray(key).getValuesAs(JsonObject.class)) {
+            final String type = p.getString("type");
+            if (type.startsWith("tuple")) {
+                types.add(canonicalTypes(p, "components") + type.substring("tuple".length()));
+            } else {
+                types.add(type);
+            }
+        }
+        return "(" + String.join(",", types) + ")";
+    }
+
+    private static byte[] word(long value) {
+        final byte[] result = new byte[32];
+        for (int i = 0; i < 8; i++) {
+            result[31 - i] = (byte) (value >>> (8 * i));
+        }
+        return result;
+    }
+
+    private static byte[] word(String solidityAddress) {
+        final byte[] result = new byte[32];
+        for (int i = 0; i < 20; i++) {
+            result[12 + i] = (byte) Integer.parseInt(solidityAddress.substring(2 * i, 2 * i + 2), 16);
+        }
+        return result;
+    }
+}
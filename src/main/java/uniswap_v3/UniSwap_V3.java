@@ -1,13 +1,28 @@
 package uniswap_v3;
 
+import com.hedera.hashgraph.sdk.Client;
 import com.hedera.hashgraph.sdk.ContractExecuteTransaction;
 import com.hedera.hashgraph.sdk.ContractFunctionParameters;
+import com.hedera.hashgraph.sdk.ContractFunctionResult;
+import com.hedera.hashgraph.sdk.ContractId;
 import common.Utils;
+import uniswap_v3.oracle.ObservationStore;
+import uniswap_v3.quoter.SwapMath;
+import uniswap_v3.quoter.TickMath;
+import uniswap_v3.quoter.Uint256;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class UniSwap_V3 {
 
     public static void main(String[] args) throws Exception {
         deploy();
+        crossCheck();
     }
 
     public static void deploy() throws Exception {
@@ -15,5 +30,118 @@ public class UniSwap_V3 {
         final ContractFunctionParameters params = new ContractFunctionParameters()
                 .addString("100"); // amountToMint
         Utils.deploy("TestERC20", "TestERC20", params, executions, UniSwap_V3.class);
+
+        // Pools exceed the 24 KB contract size limit and cannot be deployed here:
+        // the oracle snapshot is taken from an existing pool given in ~/.env
+        final String pool = Utils.getEnv("UNISWAP_V3_POOL");
+        if (pool != null) {
+            final ObservationStore store = loadObservations(ContractId.fromString(pool));
+            System.out.println("Oracle snapshot of pool " + pool + ": tick " + store.getTick()
+                    + ", " + store.getCardinality() + " observation(s)");
+        }
+    }
+
+    /**
+     * Deploys TickMathTest and SwapMathTest and compares their answers
+     * with the off-chain quoter (uniswap_v3.quoter) bit for bit.
+     */
+    public static void crossCheck() throws Exception {
+        final ContractId tickMathTest = Utils.deploy("TickMathTest", "TickMathTest", null, null, UniSwap_V3.class);
+        final ContractId swapMathTest = Utils.deploy("SwapMathTest", "SwapMathTest", null, null, UniSwap_V3.class);
+        int mismatches = 0;
+
+        // 1) TickMath
+        final TickMath tickMath = new TickMath();
+        final int[] ticks = new int[] { TickMath.MIN_TICK, -500_000, -60, -1, 0, 1, 60, 500_000, TickMath.MAX_TICK };
+        for (int tick : ticks) {
+            final ContractFunctionResult r = Utils.call(tickMathTest, "getSqrtRatioAtTick",
+                    new ContractFunctionParameters().addInt24(tick));
+            final BigInteger expected = r.getUint256(0);
+            final BigInteger actual = tickMath.getSqrtRatioAtTick(tick, new Uint256()).toBigInteger();
+            mismatches += report("getSqrtRatioAtTick(" + tick + ")", expected, actual);
+
+            final BigInteger sqrtPrice = tick == TickMath.MAX_TICK ? expected.subtract(BigInteger.ONE) : expected;
+            final ContractFunctionResult r2 = Utils.call(tickMathTest, "getTickAtSqrtRatio",
+                    new ContractFunctionParameters().addUint160(sqrtPrice));
+            mismatches += report("getTickAtSqrtRatio(" + sqrtPrice + ")",
+                    BigInteger.valueOf(r2.getInt32(0)),
+                    BigInteger.valueOf(tickMath.getTickAtSqrtRatio(Uint256.of(sqrtPrice))));
+        }
+
+        // 2) SwapMath: { sqrtP, sqrtPTarget, liquidity, amountRemaining, feePips }
+        final SwapMath swapMath = new SwapMath();
+        final String[][] steps = new String[][] {
+                { "79228162514264337593543950336", "79623317895830914510639640423", "2000000000000000000", "1000000000000000000", "600" },
+                { "79228162514264337593543950336", "78833030112140176575862854579", "2000000000000000000", "-1000000000000000000", "600" },
+                { "2413", "79887613182836312", "1985041575832132834610021537970", "10", "1872" },
+                { "20282409603651670423947251286016", "22310650564016837466341976414617", "1024", "-4", "3000" },
+                { "20282409603651670423947251286016", "18254168643286503381552526157414", "1024", "-263000", "3000" },
+                { "2", "1", "1", "3915081100057732413702495386755767", "1" },
+        };
+        for (String[] s : steps) {
+            final ContractFunctionResult r = Utils.call(swapMathTest, "computeSwapStep",
+                    new ContractFunctionParameters()
+                            .addUint160(new BigInteger(s[0]))
+                            .addUint160(new BigInteger(s[1]))
+                            .addUint128(new BigInteger(s[2]))
+                            .addInt256(new BigInteger(s[3]))
+                            .addUint24(Integer.parseInt(s[4])));
+            final SwapMath.Step step = swapMath.computeSwapStep(Uint256.of(s[0]), Uint256.of(s[1]), Uint256.of(s[2]),
+                    Uint256.of(new BigInteger(s[3])), Integer.parseInt(s[4]), new SwapMath.Step());
+            final String label = "computeSwapStep(" + String.join(", ", s) + ")";
+            mismatches += report(label + ".sqrtQ", r.getUint256(0), step.sqrtRatioNextX96.toBigInteger());
+            mismatches += report(label + ".amountIn", r.getUint256(1), step.amountIn.toBigInteger());
+            mismatches += report(label + ".amountOut", r.getUint256(2), step.amountOut.toBigInteger());
+            mismatches += report(label + ".feeAmount", r.getUint256(3), step.feeAmount.toBigInteger());
+        }
+
+        System.out.println("Quoter cross-check: " + mismatches + " mismatch(es)");
+    }
+
+    /**
+     * Bulk snapshot of a deployed pool's oracle: slot0(), liquidity() and observations(i)
+     * for every initialized slot (up to observationCardinality), queried concurrently on one client.
+     * Keep the store current afterwards with its on*() methods as pool events arrive.
+     */
+    public static ObservationStore loadObservations(ContractId pool) throws Exception {
+        final ObservationStore result = new ObservationStore();
+        try (Client client = Utils.createClient()) {
+
+            // 1) slot0 and liquidity
+            final ContractFunctionResult slot0 = Utils.call(client, pool, "slot0", new ContractFunctionParameters());
+            final ContractFunctionResult liquidity = Utils.call(client, pool, "liquidity", new ContractFunctionParameters());
+            final int tick = slot0.getInt32(1);
+            final int observationIndex = slot0.getInt32(2);
+            final int observationCardinality = slot0.getInt32(3);
+            final int observationCardinalityNext = slot0.getInt32(4);
+            result.loadSlot0(tick, observationIndex, observationCardinality, observationCardinalityNext,
+                    liquidity.getUint256(0));
+
+            // 2) observations (slots past observationCardinality are not written yet)
+            final ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(observationCardinality, 8)));
+            final List<Future<ContractFunctionResult>> observations = new ArrayList<>(observationCardinality);
+            try {
+                for (int i = 0; i < observationCardinality; i++) {
+                    final ContractFunctionParameters params = new ContractFunctionParameters().addUint256(BigInteger.valueOf(i));
+                    observations.add(executor.submit(() -> Utils.call(client, pool, "observations", params)));
+                }
+                for (int i = 0; i < observationCardinality; i++) {
+                    final ContractFunctionResult o = observations.get(i).get();
+                    result.loadObservation(i, o.getInt32(0) & 0xFFFFFFFFL, o.getInt64(1), o.getUint256(2), o.getBool(3));
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+
+        return result;
+    }
+
+    private static int report(String label, BigInteger expected, BigInteger actual) {
+        if (expected.equals(actual)) {
+            return 0;
+        }
+        System.out.println("MISMATCH " + label + ": contract=" + expected + " quoter=" + actual);
+        return 1;
     }
 }
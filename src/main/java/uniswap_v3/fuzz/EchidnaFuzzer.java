@@ -0,0 +1,508 @@
+package uniswap_v3.fuzz;
+
+import common.Keccak;
+import common.Utils;
+import uniswap_v3.UniSwap_V3;
+import uniswap_v3.quoter.Uint256;
+
+import javax.json.Json;
+import javax.json.JsonArray;
+import javax.json.JsonObject;
+import javax.json.JsonReader;
+import java.io.StringReader;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs the Echidna test contracts of uniswap_v3/artifacts on the in-process Evm.
+ * Like Echidna in assertion mode, every public function is a test that fails when it ends on
+ * INVALID (a failed assert in the contract itself), and every echidna_*() property fails when
+ * it reverts or returns false after any call of the sequence.
+ * Each thread owns an Evm with its own copy of the contract; failing call sequences are shrunk.
+ *
+ * Usage: EchidnaFuzzer [--seconds N] [--threads N] [--seed N] [--seqLen N] [ContractName...]
+ */
+public class EchidnaFuzzer {
+
+    public static final List<String> CONTRACTS = List.of(
+            "BitMathEchidnaTest",
+            "FullMathEchidnaTest",
+            "LowGasSafeMathEchidnaTest",
+            "OracleEchidnaTest",
+            "SqrtPriceMathEchidnaTest",
+            "SwapMathEchidnaTest",
+            "TickBitmapEchidnaTest",
+            "TickEchidnaTest",
+            "TickMathEchidnaTest",
+            "TickOverflowSafetyEchidnaTest",
+            "UnsafeMathEchidnaTest");
+
+    private static final Uint256 DEPLOYER = Uint256.of("0x30000");
+    private static final Uint256 SENDER = Uint256.of("0x10000");
+    private static final long MAX_TIME_DELAY = 604_800;
+    private static final int MAX_SHRINK_ROUNDS = 20;
+
+    public static void main(String[] args) throws Exception {
+        long seconds = 30;
+        int threads = Runtime.getRuntime().availableProcessors();
+        long seed = System.nanoTime();
+        int seqLen = 50;
+        final List<String> contracts = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--seconds": seconds = Long.parseLong(args[++i]); break;
+                case "--threads": threads = Integer.parseInt(args[++i]); break;
+                case "--seed": seed = Long.parseLong(args[++i]); break;
+                case "--seqLen": seqLen = Integer.parseInt(args[++i]); break;
+                default: contracts.add(args[i]);
+            }
+        }
+        int failures = 0;
+        for (String contractName : contracts.isEmpty() ? CONTRACTS : contracts) {
+            failures += run(contractName, seconds, threads, seed, seqLen).size();
+        }
+        System.out.println(failures == 0 ? "All tests passed" : failures + " test(s) failed");
+    }
+
+    /** Fuzzes one contract for {@code seconds} on {@code threads} threads; returns the shrunk failures by test name */
+    public static Map<String, List<Tx>> run(String contractName, long seconds, int threads, long seed, int seqLen)
+            throws Exception {
+        return run(Target.load(contractName), seconds, threads, seed, seqLen);
+    }
+
+    static Map<String, List<Tx>> run(Target target, long seconds, int threads, long seed, int seqLen)
+            throws Exception {
+        final Map<String, List<Tx>> failures = new ConcurrentHashMap<>();
+        final LongAdder execs = new LongAdder();
+        final long start = System.nanoTime();
+        final long deadline = start + TimeUnit.SECONDS.toNanos(seconds);
+        System.out.println(target.name + ": " + target.tests.size() + " test(s), "
+                + threads + " thread(s), seed " + seed);
+
+        // 1) Starts one worker per thread
+        final ExecutorService pool = Executors.newFixedThreadPool(threads);
+        final List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            final Worker worker = new Worker(target, new SplittableRandom(seed + 0x9E3779B97F4A7C15L * i),
+                    target.stateful ? seqLen : 1, failures, execs);
+            futures.add(pool.submit(() -> worker.run(deadline)));
+        }
+        pool.shutdown();
+
+        // 2) Reports throughput until the deadline or until every test has failed
+        long lastExecs = 0;
+        long lastTime = start;
+        while (!pool.awaitTermination(5, TimeUnit.SECONDS)) {
+            final long now = System.nanoTime();
+            final long total = execs.sum();
+            System.out.printf("  execs=%d  execs/s=%.0f  failed=%d/%d%n", total,
+                    (total - lastExecs) * 1e9 / (now - lastTime), failures.size(), target.tests.size());
+            lastExecs = total;
+            lastTime = now;
+        }
+        for (Future<?> f : futures) {
+            f.get();
+        }
+
+        // 3) Final report
+        final double elapsed = (System.nanoTime() - start) / 1e9;
+        System.out.printf("  %d execs in %.1fs (%.0f execs/s)%n", execs.sum(), elapsed, execs.sum() / elapsed);
+        for (String test : target.tests) {
+            final List<Tx> sequence = failures.get(test);
+            if (sequence == null) {
+                System.out.println("  " + test + ": passed");
+            } else {
+                System.out.println("  " + test + ": FAILED! Call sequence:");
+                for (Tx tx : sequence) {
+                    System.out.println("    " + tx);
+                }
+            }
+        }
+        return failures;
+    }
+
+    //
+    // Contract under test
+    //
+
+    static final class Function {
+        final String name;
+        final String[] types;
+        final byte[] selector;
+
+        Function(String name, String[] types, Keccak keccak) {
+            this.name = name;
+            this.types = types;
+            final String signature = name + "(" + String.join(",", types) + ")";
+            this.selector = Arrays.copyOf(keccak.hash(signature.getBytes(StandardCharsets.US_ASCII)), 4);
+        }
+
+        byte[] encode(Uint256[] args) {
+            final byte[] result = new byte[4 + 32 * args.length];
+            System.arraycopy(selector, 0, result, 0, 4);
+            for (int i = 0; i < args.length; i++) {
+                Evm.store(args[i], result, 4 + 32 * i);
+            }
+            return result;
+        }
+    }
+
+    static final class Target {
+        final String name;
+        final byte[] initCode;
+        final List<Function> actions = new ArrayList<>();
+        final List<Function> properties = new ArrayList<>();
+        final List<String> tests = new ArrayList<>();
+        final Uint256[] dictionary;
+        boolean stateful;
+
+        private Target(String name, byte[] initCode, Uint256[] dictionary) {
+            this.name = name;
+            this.initCode = initCode;
+            this.dictionary = dictionary;
+        }
+
+        static Target load(String name) throws Exception {
+            final String hex = Utils.readResourceString("artifacts/" + name + ".bin", UniSwap_V3.class).trim();
+            final String jsonText = Utils.readResourceString("artifacts/" + name + "_meta.json", UniSwap_V3.class);
+            return parse(name, hex, jsonText);
+        }
+
+        /** Target from init code in hex and solc metadata (only output.abi is read) */
+        static Target parse(String name, String hex, String jsonText) {
+            final byte[] initCode = decodeHex(hex);
+            final Target result = new Target(name, initCode, harvestConstants(initCode));
+
+            final Keccak keccak = new Keccak();
+            try (final JsonReader jsonReader = Json.createReader(new StringReader(jsonText))) {
+                final JsonArray abi = jsonReader.readObject().getJsonObject("output").getJsonArray("abi");
+                for (JsonObject entry : abi.getValuesAs(JsonObject.class)) {
+                    if (!"function".equals(entry.getString("type"))) {
+                        continue;
+                    }
+                    final List<JsonObject> inputs = entry.getJsonArray("inputs").getValuesAs(JsonObject.class);
+                    final String[] types = new String[inputs.size()];
+                    boolean supported = true;
+                    for (int i = 0; i < types.length; i++) {
+                        types[i] = inputs.get(i).getString("type");
+                        supported &= typeBits(types[i]) > 0;
+                    }
+                    if (!supported) {
+                        continue;
+                    }
+                    final String functionName = entry.getString("name");
+                    final Function function = new Function(functionName, types, keccak);
+                    if (functionName.startsWith("echidna_") && types.length == 0) {
+                        result.properties.add(function);
+                    } else {
+                        result.actions.add(function);
+                        final String mutability = entry.getString("stateMutability", "nonpayable");
+                        result.stateful |= !"pure".equals(mutability) && !"view".equals(mutability);
+                    }
+                    result.tests.add(functionName);
+                }
+            }
+            return result;
+        }
+
+        /** Every PUSH immediate found in the bytecode, as Echidna seeds its value dictionary */
+        private static Uint256[] harvestConstants(byte[] code) {
+            final LinkedHashSet<Uint256> result = new LinkedHashSet<>();
+            final Evm.Code analysis = new Evm.Code(code);
+            for (Uint256 value : analysis.pushes) {
+                if (value != null) {
+                    result.add(value);
+                }
+            }
+            return result.toArray(new Uint256[0]);
+        }
+    }
+
+    /** One call of a sequence: function, arguments and how far block.timestamp moves before it */
+    public static final class Tx {
+        final Function function;
+        final Uint256[] args;
+        long delay;
+
+        Tx(Function function, Uint256[] args, long delay) {
+            this.function = function;
+            this.args = args;
+            this.delay = delay;
+        }
+
+        Tx copy() {
+            final Uint256[] a = new Uint256[args.length];
+            for (int i = 0; i < a.length; i++) {
+                a[i] = new Uint256(args[i]);
+            }
+            return new Tx(function, a, delay);
+        }
+
+        @Override
+        public String toString() {
+            final StringBuilder result = new StringBuilder(function.name).append('(');
+            for (int i = 0; i < args.length; i++) {
+                if (i > 0) result.append(", ");
+                result.append(function.types[i].startsWith("int") ? args[i].toSignedBigInteger() : args[i].toBigInteger());
+            }
+            result.append(')');
+            if (delay != 0) {
+                result.append(" [time +").append(delay).append("s]");
+            }
+            return result.toString();
+        }
+    }
+
+    //
+    // Per-thread worker
+    //
+
+    private static final class Worker {
+        private final Target target;
+        private final SplittableRandom random;
+        private final int seqLen;
+        private final Map<String, List<Tx>> failures;
+        private final LongAdder execs;
+        private final Evm evm = new Evm();
+        private final Uint256 address;
+        private final int deployedMark;
+        private final long deployedTimestamp;
+        private final List<Uint256> recent = new ArrayList<>();
+
+        Worker(Target target, SplittableRandom random, int seqLen, Map<String, List<Tx>> failures, LongAdder execs) {
+            this.target = target;
+            this.random = random;
+            this.seqLen = seqLen;
+            this.failures = failures;
+            this.execs = execs;
+            this.address = evm.create(DEPLOYER, target.initCode);
+            if (address == null) {
+                throw new IllegalStateException(target.name + ": constructor failed");
+            }
+            this.deployedMark = evm.mark();
+            this.deployedTimestamp = evm.getTimestamp();
+        }
+
+        Void run(long deadline) {
+            final List<Tx> sequence = new ArrayList<>();
+            while (System.nanoTime() < deadline && failures.size() < target.tests.size()) {
+                sequence.clear();
+                recent.clear();
+                final int length = 1 + random.nextInt(seqLen);
+                for (int i = 0; i < length; i++) {
+                    sequence.add(randomTx());
+                }
+                final FailurePoint failure = execute(sequence, null);
+                if (failure != null && !failures.containsKey(failure.test)) {
+                    final List<Tx> failing = new ArrayList<>(sequence.subList(0, failure.index + 1));
+                    failures.putIfAbsent(failure.test, shrink(failing, failure.test));
+                }
+            }
+            return null;
+        }
+
+        /** Runs the sequence from the freshly deployed state; returns the first test that fails, if any */
+        private FailurePoint execute(List<Tx> sequence, String only) {
+            try {
+                for (int i = 0; i < sequence.size(); i++) {
+                    final Tx tx = sequence.get(i);
+                    evm.setTimestamp(evm.getTimestamp() + tx.delay);
+                    final int status = evm.call(SENDER, address, tx.function.encode(tx.args));
+                    execs.increment();
+                    if (status == Evm.INVALID && (only == null || only.equals(tx.function.name))) {
+                        return new FailurePoint(tx.function.name, i);
+                    }
+                    for (Function property : target.properties) {
+                        if (only != null && !only.equals(property.name)) {
+                            continue;
+                        }
+                        final int mark = evm.mark();
+                        final int propertyStatus = evm.call(SENDER, address, property.selector);
+                        execs.increment();
+                        final byte[] output = evm.output();
+                        evm.rollback(mark);
+                        if (propertyStatus != Evm.SUCCESS || output.length < 32 || output[31] != 1) {
+                            return new FailurePoint(property.name, i);
+                        }
+                    }
+                }
+                return null;
+            } finally {
+                evm.rollback(deployedMark);
+                evm.setTimestamp(deployedTimestamp);
+            }
+        }
+
+        /** Drops calls, then bisects each argument and delay towards zero, while the same test keeps failing */
+        private List<Tx> shrink(List<Tx> sequence, String test) {
+            final List<Tx> best = new ArrayList<>(sequence);
+            boolean progress = true;
+            for (int round = 0; progress && round < MAX_SHRINK_ROUNDS; round++) {
+                progress = false;
+                for (int i = best.size() - 1; i >= 0 && best.size() > 1; i--) {
+                    final Tx removed = best.remove(i);
+                    if (execute(best, test) == null) {
+                        best.add(i, removed);
+                    } else {
+                        progress = true;
+                    }
+                }
+                for (int i = 0; i < best.size(); i++) {
+                    for (int j = 0; j < best.get(i).args.length; j++) {
+                        progress |= shrinkArgument(best, i, j, test);
+                    }
+                    progress |= shrinkDelay(best, i, test);
+                }
+            }
+            return best;
+        }
+
+        /** Smallest magnitude, with the same sign, that still fails (exact when failure is monotonic in it) */
+        private boolean shrinkArgument(List<Tx> sequence, int index, int arg, String test) {
+            final Tx original = sequence.get(index);
+            final boolean signed = original.function.types[arg].startsWith("int");
+            final BigInteger value = signed ? original.args[arg].toSignedBigInteger() : original.args[arg].toBigInteger();
+            final BigInteger sign = BigInteger.valueOf(value.signum());
+            BigInteger passing = BigInteger.ONE.negate();
+            BigInteger failing = value.abs();
+            while (failing.subtract(passing).compareTo(BigInteger.ONE) > 0) {
+                final BigInteger middle = passing.add(failing).shiftRight(1);
+                final Tx changed = original.copy();
+                changed.args[arg] = Uint256.of(middle.multiply(sign));
+                sequence.set(index, changed);
+                if (execute(sequence, test) != null) {
+                    failing = middle;
+                } else {
+                    passing = middle;
+                }
+            }
+            final Tx result = original.copy();
+            result.args[arg] = Uint256.of(failing.multiply(sign));
+            sequence.set(index, result);
+            return !failing.equals(value.abs());
+        }
+
+        private boolean shrinkDelay(List<Tx> sequence, int index, String test) {
+            final Tx original = sequence.get(index);
+            long passing = -1;
+            long failing = original.delay;
+            while (failing - passing > 1) {
+                final long middle = passing + (failing - passing) / 2;
+                final Tx changed = original.copy();
+                changed.delay = middle;
+                sequence.set(index, changed);
+                if (execute(sequence, test) != null) {
+                    failing = middle;
+                } else {
+                    passing = middle;
+                }
+            }
+            final Tx result = original.copy();
+            result.delay = failing;
+            sequence.set(index, result);
+            return failing != original.delay;
+        }
+
+        //
+        // Input generation
+        //
+
+        private Tx randomTx() {
+            final Function function = target.actions.get(random.nextInt(target.actions.size()));
+            final Uint256[] args = new Uint256[function.types.length];
+            for (int i = 0; i < args.length; i++) {
+                args[i] = coerce(randomValue(function.types[i]), function.types[i]);
+                recent.add(args[i]);
+            }
+            final long delay = target.stateful && random.nextInt(4) == 0 ? random.nextLong(MAX_TIME_DELAY) : 0;
+            return new Tx(function, args, delay);
+        }
+
+        private Uint256 randomValue(String type) {
+            if (type.equals("address")) {
+                return random.nextBoolean() ? new Uint256(SENDER) : new Uint256(address);
+            }
+            final int bits = typeBits(type);
+            final boolean signed = type.startsWith("int");
+            final int choice = random.nextInt(20);
+            if (choice < 2 && target.dictionary.length > 0) {
+                final Uint256 result = new Uint256(target.dictionary[random.nextInt(target.dictionary.length)]);
+                return random.nextBoolean() ? result : result.add(new Uint256().setSigned(random.nextInt(3) - 1));
+            }
+            if (choice < 4 && !recent.isEmpty()) {
+                return new Uint256(recent.get(random.nextInt(recent.size())));
+            }
+            if (choice < 7) {
+                // Boundaries: 0, 1, 2^k +- 1, type max and min
+                final Uint256 result = new Uint256();
+                switch (random.nextInt(5)) {
+                    case 0: return result;
+                    case 1: return result.setUnsigned(1);
+                    case 2: return result.setMax().shiftRight(256 - bits + (signed ? 1 : 0));
+                    case 3: return signed ? result.setMax().shiftLeft(bits - 1) : result.setMax();
+                    default:
+                        result.setUnsigned(1).shiftLeft(random.nextInt(bits));
+                        return result.add(new Uint256().setSigned(random.nextInt(3) - 1));
+                }
+            }
+            // Uniform magnitude: a random bit length first, so that small values are as likely as large ones
+            final int length = 1 + random.nextInt(bits);
+            final Uint256 result = new Uint256().set(random.nextLong(), random.nextLong(), random.nextLong(), random.nextLong());
+            result.shiftRight(256 - length);
+            return signed && random.nextBoolean() ? result.negate() : result;
+        }
+
+        /** Truncates to the ABI type exactly as the contract's decoder would see it */
+        private static Uint256 coerce(Uint256 value, String type) {
+            final int bits = typeBits(type);
+            if (bits == 256) {
+                return value;
+            }
+            if (type.startsWith("int")) {
+                return value.shiftLeft(256 - bits).shiftRightArithmetic(256 - bits);
+            }
+            return value.shiftLeft(256 - bits).shiftRight(256 - bits);
+        }
+    }
+
+    private static final class FailurePoint {
+        final String test;
+        final int index;
+
+        FailurePoint(String test, int index) {
+            this.test = test;
+            this.index = index;
+        }
+    }
+
+    /** Width of a static ABI type, or 0 for types the fuzzer does not generate */
+    private static int typeBits(String type) {
+        if (type.contains("[")) return 0;
+        if (type.equals("bool")) return 1;
+        if (type.equals("address")) return 160;
+        if (type.startsWith("uint")) return type.length() == 4 ? 256 : Integer.parseInt(type.substring(4));
+        if (type.startsWith("int")) return type.length() == 3 ? 256 : Integer.parseInt(type.substring(3));
+        return 0;
+    }
+
+    private static byte[] decodeHex(String hex) {
+        final String digits = hex.startsWith("0x") ? hex.substring(2) : hex;
+        final byte[] result = new byte[digits.length() / 2];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = (byte) Integer.parseInt(digits.substring(2 * i, 2 * i + 2), 16);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,822 @@
+package uniswap_v3.fuzz;
+
+import common.Keccak;
+import uniswap_v3.quoter.FullMath;
+import uniswap_v3.quoter.Uint256;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Minimal in-process EVM (Istanbul opcode set) for running compiled test contracts locally.
+ * There is no gas metering and no balance: each top level call gets a step budget instead,
+ * and CALLVALUE is passed through without being transferred.
+ * State changes are journaled so that a reverted frame, or a whole call sequence, is undone in place.
+ * Not thread safe: stacks, memories and scratch words are owned by the instance.
+ */
+public final class Evm {
+
+    public static final int SUCCESS = 0;
+    public static final int REVERT = 1;
+    public static final int INVALID = 2; // 0xfe, i.e. a failed assert() in solc 0.7
+    public static final int HALT = 3;    // any other exceptional halt (bad jump, stack, step budget...)
+
+    private static final int MAX_DEPTH = 1024;
+    private static final int MAX_STACK = 1024;
+    private static final int MAX_MEMORY = 1 << 24;
+    private static final long STEP_BUDGET = 10_000_000L;
+    private static final byte[] EMPTY = new byte[0];
+
+    private static final VarHandle LONG_BE = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+    // Stack items consumed (-1 for undefined opcodes) and pushed by each opcode
+    private static final byte[] STACK_IN = new byte[256];
+    private static final byte[] STACK_OUT = new byte[256];
+
+    static {
+        Arrays.fill(STACK_IN, (byte) -1);
+        define(0x00, 0, 0);
+        for (int op : new int[] { 0x01, 0x02, 0x03, 0x04, 0x05, 0x06, 0x07, 0x0a, 0x0b,
+                0x10, 0x11, 0x12, 0x13, 0x14, 0x16, 0x17, 0x18, 0x1a, 0x1b, 0x1c, 0x1d, 0x20 }) {
+            define(op, 2, 1);
+        }
+        define(0x08, 3, 1);
+        define(0x09, 3, 1);
+        define(0x15, 1, 1);
+        define(0x19, 1, 1);
+        for (int op : new int[] { 0x30, 0x32, 0x33, 0x34, 0x36, 0x38, 0x3a, 0x3d,
+                0x41, 0x42, 0x43, 0x44, 0x45, 0x46, 0x47, 0x58, 0x59, 0x5a }) {
+            define(op, 0, 1);
+        }
+        for (int op : new int[] { 0x31, 0x35, 0x3b, 0x3f, 0x40, 0x51, 0x54 }) {
+            define(op, 1, 1);
+        }
+        define(0x37, 3, 0);
+        define(0x39, 3, 0);
+        define(0x3c, 4, 0);
+        define(0x3e, 3, 0);
+        define(0x50, 1, 0);
+        define(0x52, 2, 0);
+        define(0x53, 2, 0);
+        define(0x55, 2, 0);
+        define(0x56, 1, 0);
+        define(0x57, 2, 0);
+        define(0x5b, 0, 0);
+        for (int n = 1; n <= 32; n++) {
+            define(0x5f + n, 0, 1);  // PUSHn
+        }
+        for (int n = 1; n <= 16; n++) {
+            define(0x7f + n, n, n + 1);  // DUPn
+            define(0x8f + n, n + 1, n + 1);  // SWAPn
+        }
+        for (int n = 0; n <= 4; n++) {
+            define(0xa0 + n, n + 2, 0);  // LOGn
+        }
+        define(0xf0, 3, 1);
+        define(0xf1, 7, 1);
+        define(0xf3, 2, 0);
+        define(0xf4, 6, 1);
+        define(0xf5, 4, 1);
+        define(0xfa, 6, 1);
+        define(0xfd, 2, 0);
+        define(0xfe, 0, 0);
+    }
+
+    static final class Code {
+        final byte[] bytes;
+        final boolean[] jumpDests;
+        final Uint256[] pushes; // immediate value of the PUSH at each pc
+
+        Code(byte[] bytes) {
+            this.bytes = bytes;
+            this.jumpDests = new boolean[bytes.length];
+            this.pushes = new Uint256[bytes.length];
+            int pc = 0;
+            while (pc < bytes.length) {
+                final int op = bytes[pc] & 0xFF;
+                if (op == 0x5b) {
+                    jumpDests[pc] = true;
+                } else if (op >= 0x60 && op <= 0x7f) {
+                    final int n = op - 0x5f;
+                    final byte[] word = new byte[32];
+                    System.arraycopy(bytes, pc + 1, word, 32 - n, Math.min(n, bytes.length - pc - 1));
+                    pushes[pc] = load(word, 0, new Uint256());
+                    pc += n;
+                }
+                pc++;
+            }
+        }
+    }
+
+    static final class Account {
+        final Uint256 address;
+        final HashMap<Uint256, Uint256> storage = new HashMap<>();
+        Code code;
+        long nonce;
+
+        Account(Uint256 address) {
+            this.address = address;
+        }
+    }
+
+    // Journal entries
+    private static final int STORAGE = 0;
+    private static final int CREATED = 1;
+    private static final int NONCE = 2;
+    private static final int CODE = 3;
+
+    private static final class Change {
+        final int kind;
+        final Account account;
+        final Uint256 key;
+        final Uint256 previous;
+
+        Change(int kind, Account account, Uint256 key, Uint256 previous) {
+            this.kind = kind;
+            this.account = account;
+            this.key = key;
+            this.previous = previous;
+        }
+    }
+
+    private static final class Halt extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        Halt() {
+            super(null, null, false, false);
+        }
+    }
+
+    private static final Halt HALT_EXCEPTION = new Halt();
+
+    private final HashMap<Uint256, Account> accounts = new HashMap<>();
+    private final ArrayList<Change> journal = new ArrayList<>();
+
+    private final Uint256[][] stacks = new Uint256[MAX_DEPTH + 1][];
+    private final byte[][] memories = new byte[MAX_DEPTH + 1][];
+    private final int[] memorySizes = new int[MAX_DEPTH + 1];
+
+    private final FullMath fullMath = new FullMath();
+    private final Keccak keccak = new Keccak();
+    private final byte[] hashBuffer = new byte[85];
+    private final Uint256 scratch = new Uint256();
+
+    private long stepsLeft;
+    private byte[] output = EMPTY;
+    private Uint256 origin = new Uint256();
+    private long timestamp = 1;
+    private long blockNumber = 1;
+
+    //
+    // Public API
+    //
+
+    /** Runs init code from {@code sender}; returns the new contract address, or null if the constructor failed. */
+    public Uint256 create(Uint256 sender, byte[] initCode) {
+        startTransaction(sender);
+        final int mark = mark();
+        final Account from = getOrCreateAccount(sender);
+        final Uint256 address = createAddress(from);
+        incrementNonce(from);
+        final int status = create(from, address, initCode, new Uint256(), 0);
+        if (status != SUCCESS) {
+            rollback(mark);
+            return null;
+        }
+        return address;
+    }
+
+    /** Sends a message call from {@code sender}; state changes are undone unless it returns SUCCESS. */
+    public int call(Uint256 sender, Uint256 to, byte[] input) {
+        startTransaction(sender);
+        final int mark = mark();
+        final Account target = accounts.get(to);
+        if (target == null || target.code == null) {
+            return SUCCESS;
+        }
+        final int status = execute(target, target.code, sender, new Uint256(), input, false, 0);
+        if (status != SUCCESS) {
+            rollback(mark);
+        }
+        return status;
+    }
+
+    /** Return or revert data of the last top level call */
+    public byte[] output() {
+        return output;
+    }
+
+    /** Position in the journal; pass it to rollback() to undo every change made since */
+    public int mark() {
+        return journal.size();
+    }
+
+    public void rollback(int mark) {
+        for (int i = journal.size() - 1; i >= mark; i--) {
+            final Change c = journal.remove(i);
+            switch (c.kind) {
+                case STORAGE:
+                    if (c.previous == null) {
+                        c.account.storage.remove(c.key);
+                    } else {
+                        c.account.storage.put(c.key, c.previous);
+                    }
+                    break;
+                case CREATED:
+                    accounts.remove(c.account.address);
+                    break;
+                case NONCE:
+                    c.account.nonce--;
+                    break;
+                case CODE:
+                    c.account.code = null;
+                    break;
+            }
+        }
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(long timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    public long getBlockNumber() {
+        return blockNumber;
+    }
+
+    public void setBlockNumber(long blockNumber) {
+        this.blockNumber = blockNumber;
+    }
+
+    //
+    // Private
+    //
+
+    private static void define(int op, int in, int out) {
+        STACK_IN[op] = (byte) in;
+        STACK_OUT[op] = (byte) out;
+    }
+
+    private void startTransaction(Uint256 sender) {
+        stepsLeft = STEP_BUDGET;
+        output = EMPTY;
+        origin = sender;
+    }
+
+    private Account getOrCreateAccount(Uint256 address) {
+        Account result = accounts.get(address);
+        if (result == null) {
+            result = new Account(new Uint256(address));
+            accounts.put(result.address, result);
+            journal.add(new Change(CREATED, result, null, null));
+        }
+        return result;
+    }
+
+    /** keccak256(rlp([sender, nonce]))[12:] */
+    private Uint256 createAddress(Account sender) {
+        final byte[] b = hashBuffer;
+        final long nonce = sender.nonce;
+        int n = 0;
+        b[n++] = 0; // list prefix, patched below
+        b[n++] = (byte) 0x94;
+        n = storeAddress(sender.address, b, n);
+        if (nonce == 0) {
+            b[n++] = (byte) 0x80;
+        } else if (nonce < 0x80) {
+            b[n++] = (byte) nonce;
+        } else {
+            final int length = 8 - Long.numberOfLeadingZeros(nonce) / 8;
+            b[n++] = (byte) (0x80 + length);
+            for (int i = length - 1; i >= 0; i--) {
+                b[n++] = (byte) (nonce >>> (8 * i));
+            }
+        }
+        b[0] = (byte) (0xc0 + n - 1);
+        return hashToAddress(b, n);
+    }
+
+    /** keccak256(0xff ++ sender ++ salt ++ keccak256(initCode))[12:] */
+    private Uint256 create2Address(Account sender, Uint256 salt, byte[] initCode) {
+        final byte[] b = hashBuffer;
+        b[0] = (byte) 0xff;
+        storeAddress(sender.address, b, 1);
+        store(salt, b, 21);
+        keccak.hash(initCode, 0, initCode.length, b, 53);
+        return hashToAddress(b, 85);
+    }
+
+    private Uint256 hashToAddress(byte[] b, int length) {
+        final byte[] digest = new byte[32];
+        keccak.hash(b, 0, length, digest, 0);
+        Arrays.fill(digest, 0, 12, (byte) 0);
+        return load(digest, 0, new Uint256());
+    }
+
+    private static int storeAddress(Uint256 address, byte[] b, int offset) {
+        final byte[] word = new byte[32];
+        store(address, word, 0);
+        System.arraycopy(word, 12, b, offset, 20);
+        return offset + 20;
+    }
+
+    private int create(Account creator, Uint256 address, byte[] initCode, Uint256 value, int depth) {
+        final Account existing = accounts.get(address);
+        if (existing != null && (existing.code != null || existing.nonce != 0)) {
+            output = EMPTY;
+            return HALT;
+        }
+        final Account account = getOrCreateAccount(address);
+        incrementNonce(account);
+        final int status = execute(account, new Code(initCode), creator.address, value, EMPTY, false, depth);
+        if (status == SUCCESS) {
+            account.code = new Code(output);
+            journal.add(new Change(CODE, account, null, null));
+            output = EMPTY;
+        }
+        return status;
+    }
+
+    private void incrementNonce(Account account) {
+        account.nonce++;
+        journal.add(new Change(NONCE, account, null, null));
+    }
+
+    private void sstore(Account account, Uint256 key, Uint256 value) {
+        final Uint256 k = new Uint256(key);
+        final Uint256 previous = account.storage.put(k, new Uint256(value));
+        journal.add(new Change(STORAGE, account, k, previous));
+    }
+
+    /** Runs one frame; leaves its return / revert data in {@code output}. */
+    private int execute(Account self, Code code, Uint256 caller, Uint256 value, byte[] input,
+                        boolean isStatic, int depth) {
+        Uint256[] stack = stacks[depth];
+        if (stack == null) {
+            stack = new Uint256[MAX_STACK];
+            for (int i = 0; i < MAX_STACK; i++) {
+                stack[i] = new Uint256();
+            }
+            stacks[depth] = stack;
+        }
+        if (memories[depth] == null) {
+            memories[depth] = new byte[4096];
+        } else {
+            Arrays.fill(memories[depth], 0, memorySizes[depth], (byte) 0);
+        }
+        memorySizes[depth] = 0;
+
+        final byte[] bytes = code.bytes;
+        Uint256 tmp = new Uint256();
+        byte[] returnData = EMPTY;
+        int sp = 0;
+        int pc = 0;
+        try {
+            while (true) {
+                if (pc >= bytes.length) {
+                    output = EMPTY;
+                    return SUCCESS;
+                }
+                if (--stepsLeft < 0) {
+                    throw HALT_EXCEPTION;
+                }
+                final int op = bytes[pc] & 0xFF;
+                final int in = STACK_IN[op];
+                if (in < 0 || sp < in || sp - in + STACK_OUT[op] > MAX_STACK) {
+                    throw HALT_EXCEPTION;
+                }
+                final Uint256 a = sp > 0 ? stack[sp - 1] : null;
+                final Uint256 b = sp > 1 ? stack[sp - 2] : null;
+                pc++;
+                switch (op) {
+                    case 0x00: // STOP
+                        output = EMPTY;
+                        return SUCCESS;
+
+                    // 1) Arithmetic: results are computed in place, then rotated under the popped operand
+                    case 0x01: b.add(a); sp--; break;
+                    case 0x02: b.mul(a); sp--; break;
+                    case 0x03: a.sub(b); swapTop(stack, sp); sp--; break;
+                    case 0x04: // DIV
+                        fullMath.div(a, b, tmp);
+                        stack[sp - 2] = tmp;
+                        tmp = b;
+                        sp--;
+                        break;
+                    case 0x05: { // SDIV
+                        final boolean negative = a.isNegative() != b.isNegative();
+                        if (a.isNegative()) a.negate();
+                        if (b.isNegative()) b.negate();
+                        fullMath.div(a, b, tmp);
+                        if (negative) tmp.negate();
+                        stack[sp - 2] = tmp;
+                        tmp = b;
+                        sp--;
+                        break;
+                    }
+                    case 0x06: // MOD
+                        fullMath.mod(a, b, tmp);
+                        stack[sp - 2] = tmp;
+                        tmp = b;
+                        sp--;
+                        break;
+                    case 0x07: { // SMOD
+                        final boolean negative = a.isNegative();
+                        if (a.isNegative()) a.negate();
+                        if (b.isNegative()) b.negate();
+                        fullMath.mod(a, b, tmp);
+                        if (negative) tmp.negate();
+                        stack[sp - 2] = tmp;
+                        tmp = b;
+                        sp--;
+                        break;
+                    }
+                    case 0x08: // ADDMOD
+                    case 0x09: { // MULMOD
+                        final Uint256 n = stack[sp - 3];
+                        if (op == 0x08) {
+                            fullMath.addMod(a, b, n, tmp);
+                        } else {
+                            fullMath.mulMod(a, b, n, tmp);
+                        }
+                        stack[sp - 3] = tmp;
+                        tmp = n;
+                        sp -= 2;
+                        break;
+                    }
+                    case 0x0a: { // EXP
+                        tmp.setUnsigned(1);
+                        for (int bit = b.bitLength() - 1; bit >= 0; bit--) {
+                            tmp.mul(tmp);
+                            if (((b.word(bit >>> 6) >>> (bit & 63)) & 1) != 0) {
+                                tmp.mul(a);
+                            }
+                        }
+                        stack[sp - 2] = tmp;
+                        tmp = b;
+                        sp--;
+                        break;
+                    }
+                    case 0x0b: // SIGNEXTEND
+                        if (a.fitsIn(5) && a.longValue() < 31) {
+                            final int shift = 256 - 8 * ((int) a.longValue() + 1);
+                            b.shiftLeft(shift).shiftRightArithmetic(shift);
+                        }
+                        sp--;
+                        break;
+
+                    // 2) Comparison and bitwise
+                    case 0x10: b.setUnsigned(a.compareTo(b) < 0 ? 1 : 0); sp--; break;
+                    case 0x11: b.setUnsigned(a.compareTo(b) > 0 ? 1 : 0); sp--; break;
+                    case 0x12: b.setUnsigned(a.compareSigned(b) < 0 ? 1 : 0); sp--; break;
+                    case 0x13: b.setUnsigned(a.compareSigned(b) > 0 ? 1 : 0); sp--; break;
+                    case 0x14: b.setUnsigned(a.equals(b) ? 1 : 0); sp--; break;
+                    case 0x15: a.setUnsigned(a.isZero() ? 1 : 0); break;
+                    case 0x16: b.and(a); sp--; break;
+                    case 0x17: b.or(a); sp--; break;
+                    case 0x18: b.xor(a); sp--; break;
+                    case 0x19: a.not(); break;
+                    case 0x1a: // BYTE
+                        if (a.fitsIn(5)) {
+                            b.shiftRight(248 - 8 * (int) a.longValue());
+                            b.setUnsigned(b.longValue() & 0xFF);
+                        } else {
+                            b.setZero();
+                        }
+                        sp--;
+                        break;
+                    case 0x1b: b.shiftLeft(shiftAmount(a)); sp--; break;
+                    case 0x1c: b.shiftRight(shiftAmount(a)); sp--; break;
+                    case 0x1d: b.shiftRightArithmetic(shiftAmount(a)); sp--; break;
+                    case 0x20: { // SHA3
+                        final int length = expand(depth, a, b);
+                        final int offset = length == 0 ? 0 : (int) a.longValue();
+                        final byte[] digest = hashBuffer;
+                        keccak.hash(memories[depth], offset, length, digest, 0);
+                        load(digest, 0, b);
+                        sp--;
+                        break;
+                    }
+
+                    // 3) Environment
+                    case 0x30: stack[sp++].set(self.address); break;
+                    case 0x31: a.setZero(); break; // BALANCE
+                    case 0x32: stack[sp++].set(origin); break;
+                    case 0x33: stack[sp++].set(caller); break;
+                    case 0x34: stack[sp++].set(value); break;
+                    case 0x35: // CALLDATALOAD
+                        if (a.fitsIn(31)) {
+                            loadPadded(input, (int) a.longValue(), a);
+                        } else {
+                            a.setZero();
+                        }
+                        break;
+                    case 0x36: stack[sp++].setUnsigned(input.length); break;
+                    case 0x37: // CALLDATACOPY
+                        copyPadded(depth, a, b, stack[sp - 3], input);
+                        sp -= 3;
+                        break;
+                    case 0x38: stack[sp++].setUnsigned(bytes.length); break;
+                    case 0x39: // CODECOPY
+                        copyPadded(depth, a, b, stack[sp - 3], bytes);
+                        sp -= 3;
+                        break;
+                    case 0x3a: stack[sp++].setZero(); break; // GASPRICE
+                    case 0x3b: { // EXTCODESIZE
+                        final Account account = accounts.get(scratch.set(a).and(ADDRESS_MASK));
+                        a.setUnsigned(account == null || account.code == null ? 0 : account.code.bytes.length);
+                        break;
+                    }
+                    case 0x3c: { // EXTCODECOPY
+                        final Account account = accounts.get(scratch.set(a).and(ADDRESS_MASK));
+                        final byte[] source = account == null || account.code == null ? EMPTY : account.code.bytes;
+                        copyPadded(depth, b, stack[sp - 3], stack[sp - 4], source);
+                        sp -= 4;
+                        break;
+                    }
+                    case 0x3d: stack[sp++].setUnsigned(returnData.length); break;
+                    case 0x3e: { // RETURNDATACOPY
+                        final Uint256 length = stack[sp - 3];
+                        if (!b.fitsIn(31) || !length.fitsIn(31) || b.longValue() + length.longValue() > returnData.length) {
+                            throw HALT_EXCEPTION;
+                        }
+                        copyPadded(depth, a, b, length, returnData);
+                        sp -= 3;
+                        break;
+                    }
+                    case 0x3f: { // EXTCODEHASH
+                        final Account account = accounts.get(scratch.set(a).and(ADDRESS_MASK));
+                        if (account == null) {
+                            a.setZero();
+                        } else {
+                            final byte[] source = account.code == null ? EMPTY : account.code.bytes;
+                            keccak.hash(source, 0, source.length, hashBuffer, 0);
+                            load(hashBuffer, 0, a);
+                        }
+                        break;
+                    }
+                    case 0x40: a.setZero(); break; // BLOCKHASH
+                    case 0x41: stack[sp++].setZero(); break; // COINBASE
+                    case 0x42: stack[sp++].setUnsigned(timestamp); break;
+                    case 0x43: stack[sp++].setUnsigned(blockNumber); break;
+                    case 0x44: stack[sp++].setZero(); break; // DIFFICULTY
+                    case 0x45: stack[sp++].setUnsigned(STEP_BUDGET); break; // GASLIMIT
+                    case 0x46: stack[sp++].setUnsigned(1); break; // CHAINID
+                    case 0x47: stack[sp++].setZero(); break; // SELFBALANCE
+
+                    // 4) Stack, memory, storage and flow
+                    case 0x50: sp--; break;
+                    case 0x51: // MLOAD
+                        expand(depth, a, THIRTY_TWO);
+                        load(memories[depth], (int) a.longValue(), a);
+                        break;
+                    case 0x52: // MSTORE
+                        expand(depth, a, THIRTY_TWO);
+                        store(b, memories[depth], (int) a.longValue());
+                        sp -= 2;
+                        break;
+                    case 0x53: // MSTORE8
+                        expand(depth, a, ONE);
+                        memories[depth][(int) a.longValue()] = (byte) b.longValue();
+                        sp -= 2;
+                        break;
+                    case 0x54: { // SLOAD
+                        final Uint256 stored = self.storage.get(a);
+                        if (stored == null) {
+                            a.setZero();
+                        } else {
+                            a.set(stored);
+                        }
+                        break;
+                    }
+                    case 0x55: // SSTORE
+                        if (isStatic) {
+                            throw HALT_EXCEPTION;
+                        }
+                        sstore(self, a, b);
+                        sp -= 2;
+                        break;
+                    case 0x56: // JUMP
+                        pc = jumpDestination(code, a);
+                        sp--;
+                        break;
+                    case 0x57: // JUMPI
+                        if (!b.isZero()) {
+                            pc = jumpDestination(code, a);
+                        }
+                        sp -= 2;
+                        break;
+                    case 0x58: stack[sp++].setUnsigned(pc - 1); break;
+                    case 0x59: stack[sp++].setUnsigned(memorySizes[depth]); break;
+                    case 0x5a: stack[sp++].setUnsigned(Math.max(stepsLeft, 0)); break; // GAS
+                    case 0x5b: break; // JUMPDEST
+
+                    // 5) System
+                    case 0xf0: // CREATE
+                    case 0xf5: { // CREATE2
+                        if (isStatic) {
+                            throw HALT_EXCEPTION;
+                        }
+                        final Uint256 v = new Uint256(a);
+                        final int length = expand(depth, b, stack[sp - 3]);
+                        final byte[] initCode = length == 0 ? EMPTY
+                                : Arrays.copyOfRange(memories[depth], (int) b.longValue(), (int) b.longValue() + length);
+                        final Uint256 address = op == 0xf0
+                                ? createAddress(self)
+                                : create2Address(self, stack[sp - 4], initCode);
+                        sp -= op == 0xf0 ? 3 : 4;
+                        int status = HALT;
+                        if (depth < MAX_DEPTH) {
+                            incrementNonce(self);
+                            final int mark = mark();
+                            status = create(self, address, initCode, v, depth + 1);
+                            if (status != SUCCESS) {
+                                rollback(mark);
+                            }
+                        }
+                        returnData = status == REVERT ? output : EMPTY;
+                        if (status == SUCCESS) {
+                            stack[sp++].set(address);
+                        } else {
+                            stack[sp++].setZero();
+                        }
+                        break;
+                    }
+                    case 0xf1: // CALL
+                    case 0xf4: // DELEGATECALL
+                    case 0xfa: { // STATICCALL
+                        final Uint256 to = new Uint256(b).and(ADDRESS_MASK);
+                        final boolean hasValue = op == 0xf1;
+                        final Uint256 v = hasValue ? new Uint256(stack[sp - 3]) : null;
+                        if (hasValue && isStatic && !v.isZero()) {
+                            throw HALT_EXCEPTION;
+                        }
+                        final int base = sp - (hasValue ? 4 : 3);
+                        final Uint256 inOffset = stack[base];
+                        final Uint256 inLength = stack[base - 1];
+                        final Uint256 outOffset = stack[base - 2];
+                        final Uint256 outLength = stack[base - 3];
+                        final int inSize = expand(depth, inOffset, inLength);
+                        final int outSize = expand(depth, outOffset, outLength);
+                        final int out = outSize == 0 ? 0 : (int) outOffset.longValue();
+                        final byte[] callInput = inSize == 0 ? EMPTY
+                                : Arrays.copyOfRange(memories[depth], (int) inOffset.longValue(), (int) inOffset.longValue() + inSize);
+                        sp = base - 3;
+
+                        int status = SUCCESS;
+                        output = EMPTY;
+                        final Account target = accounts.get(to);
+                        if (depth >= MAX_DEPTH) {
+                            status = HALT;
+                        } else if (target != null && target.code != null) {
+                            final int mark = mark();
+                            if (op == 0xf4) {
+                                status = execute(self, target.code, caller, value, callInput, isStatic, depth + 1);
+                            } else {
+                                status = execute(target, target.code, self.address, op == 0xfa ? new Uint256() : v,
+                                        callInput, isStatic || op == 0xfa, depth + 1);
+                            }
+                            if (status != SUCCESS) {
+                                rollback(mark);
+                            }
+                        }
+                        returnData = status == HALT || status == INVALID ? EMPTY : output;
+                        System.arraycopy(returnData, 0, memories[depth], out, Math.min(outSize, returnData.length));
+                        stack[sp++].setUnsigned(status == SUCCESS ? 1 : 0);
+                        break;
+                    }
+                    case 0xf3: // RETURN
+                    case 0xfd: { // REVERT
+                        final int length = expand(depth, a, b);
+                        final int offset = length == 0 ? 0 : (int) a.longValue();
+                        output = Arrays.copyOfRange(memories[depth], offset, offset + length);
+                        return op == 0xf3 ? SUCCESS : REVERT;
+                    }
+                    case 0xfe: // INVALID
+                        output = EMPTY;
+                        return INVALID;
+
+                    default:
+                        if (op >= 0x60 && op <= 0x7f) { // PUSHn
+                            stack[sp++].set(code.pushes[pc - 1]);
+                            pc += op - 0x5f;
+                        } else if (op >= 0x80 && op <= 0x8f) { // DUPn
+                            stack[sp].set(stack[sp - (op - 0x7f)]);
+                            sp++;
+                        } else if (op >= 0x90 && op <= 0x9f) { // SWAPn
+                            final int other = sp - 2 - (op - 0x90);
+                            final Uint256 top = stack[sp - 1];
+                            stack[sp - 1] = stack[other];
+                            stack[other] = top;
+                        } else if (op >= 0xa0 && op <= 0xa4) { // LOGn
+                            if (isStatic) {
+                                throw HALT_EXCEPTION;
+                            }
+                            expand(depth, a, b);
+                            sp -= op - 0xa0 + 2;
+                        } else {
+                            throw HALT_EXCEPTION;
+                        }
+                }
+            }
+        } catch (Halt e) {
+            output = EMPTY;
+            return HALT;
+        }
+    }
+
+    private static final Uint256 ADDRESS_MASK = new Uint256().setMax().shiftRight(96);
+    private static final Uint256 THIRTY_TWO = new Uint256(32);
+    private static final Uint256 ONE = new Uint256(1);
+
+    private static void swapTop(Uint256[] stack, int sp) {
+        final Uint256 top = stack[sp - 1];
+        stack[sp - 1] = stack[sp - 2];
+        stack[sp - 2] = top;
+    }
+
+    private static int shiftAmount(Uint256 shift) {
+        return shift.fitsIn(9) ? (int) shift.longValue() : 256;
+    }
+
+    private static int jumpDestination(Code code, Uint256 destination) {
+        if (!destination.fitsIn(31) || destination.longValue() >= code.bytes.length
+                || !code.jumpDests[(int) destination.longValue()]) {
+            throw HALT_EXCEPTION;
+        }
+        return (int) destination.longValue();
+    }
+
+    /** Grows the memory of {@code depth} to cover [offset, offset + length); returns length */
+    private int expand(int depth, Uint256 offset, Uint256 length) {
+        if (length.isZero()) {
+            return 0;
+        }
+        if (!offset.fitsIn(31) || !length.fitsIn(31)) {
+            throw HALT_EXCEPTION;
+        }
+        final long end = offset.longValue() + length.longValue();
+        if (end > MAX_MEMORY) {
+            throw HALT_EXCEPTION;
+        }
+        final int size = (int) ((end + 31) & ~31L);
+        if (size > memorySizes[depth]) {
+            final byte[] memory = memories[depth];
+            if (size > memory.length) {
+                memories[depth] = Arrays.copyOf(memory, Math.max(size, 2 * memory.length));
+            }
+            memorySizes[depth] = size;
+        }
+        return (int) length.longValue();
+    }
+
+    /** memory[destination, destination + length) = source[offset...] padded with zeros */
+    private void copyPadded(int depth, Uint256 destination, Uint256 offset, Uint256 length, byte[] source) {
+        final int size = expand(depth, destination, length);
+        if (size == 0) {
+            return;
+        }
+        final byte[] memory = memories[depth];
+        final int to = (int) destination.longValue();
+        final int available = offset.fitsIn(31) ? (int) Math.max(0, Math.min(size, source.length - offset.longValue())) : 0;
+        if (available > 0) {
+            System.arraycopy(source, (int) offset.longValue(), memory, to, available);
+        }
+        Arrays.fill(memory, to + available, to + size, (byte) 0);
+    }
+
+    private static void loadPadded(byte[] source, int offset, Uint256 result) {
+        if (offset <= source.length - 32) {
+            load(source, offset, result);
+            return;
+        }
+        final byte[] word = new byte[32];
+        if (offset < source.length) {
+            System.arraycopy(source, offset, word, 0, source.length - offset);
+        }
+        load(word, 0, result);
+    }
+
+    static Uint256 load(byte[] b, int offset, Uint256 result) {
+        return result.set(
+                (long) LONG_BE.get(b, offset),
+                (long) LONG_BE.get(b, offset + 8),
+                (long) LONG_BE.get(b, offset + 16),
+                (long) LONG_BE.get(b, offset + 24));
+    }
+
+    static void store(Uint256 value, byte[] b, int offset) {
+        LONG_BE.set(b, offset, value.word(3));
+        LONG_BE.set(b, offset + 8, value.word(2));
+        LONG_BE.set(b, offset + 16, value.word(1));
+        LONG_BE.set(b, offset + 24, value.word(0));
+    }
+}
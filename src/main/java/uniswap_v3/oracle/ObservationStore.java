@@ -0,0 +1,362 @@
+package uniswap_v3.oracle;
+
+import uniswap_v3.quoter.FullMath;
+import uniswap_v3.quoter.Revert;
+import uniswap_v3.quoter.Uint256;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+import static uniswap_v3.quoter.Revert.require;
+
+/**
+ * Off-chain mirror of one pool's Oracle.Observation[65535] ring buffer.
+ *
+ * Observations are kept column-wise in primitive arrays (no object per observation)
+ * which grow with the pool's observationCardinalityNext instead of reserving 65535 slots.
+ * The store is fed either from a bulk snapshot (slot0() + observations(i)) or incrementally
+ * from Initialize / IncreaseObservationCardinalityNext / Mint / Burn / Swap events, and
+ * answers observe() queries with the same binary search as libraries/Oracle.sol.
+ *
+ * Not thread safe: queries reuse scratch words.
+ */
+public final class ObservationStore {
+
+    public static final int MAX_CARDINALITY = 65535;
+
+    private static final long UINT32_MASK = 0xFFFFFFFFL;
+    private static final BigInteger UINT160_MAX = BigInteger.ONE.shiftLeft(160).subtract(BigInteger.ONE);
+    private static final BigInteger UINT128_MAX = BigInteger.ONE.shiftLeft(128).subtract(BigInteger.ONE);
+
+    // Observation columns (uint32 timestamps kept as raw int bits, uint160 split in three longs)
+    private int[] blockTimestamps = new int[1];
+    private long[] tickCumulatives = new long[1];
+    private long[] splWords = new long[3];
+    private boolean[] initialized = new boolean[1];
+
+    // slot0 / pool mirror
+    private int index;
+    private int cardinality;
+    private int cardinalityNext;
+    private int tick;
+    private final Uint256 liquidity = new Uint256();
+
+    // Scratch
+    private final FullMath fullMath = new FullMath();
+    private final Uint256 splBefore = new Uint256();
+    private final Uint256 splAfter = new Uint256();
+    private final Uint256 numerator = new Uint256();
+    private final Uint256 denominator = new Uint256();
+    private final Uint256 quotient = new Uint256();
+    private final Uint256 spl = new Uint256();
+    private final Uint256 splOther = new Uint256();
+    private long beforeTickCumulative;
+    private int beforeTimestamp;
+    private long afterTickCumulative;
+    private int afterTimestamp;
+
+    //
+    // Bulk snapshot
+    //
+
+    /** Mirrors slot0 (tick, observationIndex, observationCardinality, observationCardinalityNext) and liquidity() */
+    public void loadSlot0(int tick, int observationIndex, int observationCardinality,
+                          int observationCardinalityNext, BigInteger liquidity) {
+        ensureCapacity(Math.max(observationCardinality, observationCardinalityNext));
+        this.tick = tick;
+        this.index = observationIndex;
+        this.cardinality = observationCardinality;
+        this.cardinalityNext = observationCardinalityNext;
+        this.liquidity.set(liquidity);
+    }
+
+    /** Mirrors observations(i) */
+    public void loadObservation(int i, long blockTimestamp, long tickCumulative,
+                                BigInteger secondsPerLiquidityCumulativeX128, boolean isInitialized) {
+        ensureCapacity(i + 1);
+        spl.set(secondsPerLiquidityCumulativeX128);
+        store(i, (int) blockTimestamp, tickCumulative, spl, isInitialized);
+    }
+
+    //
+    // Incremental updates (one method per pool event)
+    //
+
+    /** Initialize(sqrtPriceX96, tick) */
+    public void onInitialize(long blockTimestamp, int tick) {
+        ensureCapacity(1);
+        spl.setZero();
+        store(0, (int) blockTimestamp, 0, spl, true);
+        this.index = 0;
+        this.cardinality = 1;
+        this.cardinalityNext = 1;
+        this.tick = tick;
+        this.liquidity.setZero();
+    }
+
+    /** IncreaseObservationCardinalityNext(old, new) */
+    public void onIncreaseObservationCardinalityNext(int observationCardinalityNextNew) {
+        require(cardinality > 0, "I");
+        if (observationCardinalityNextNew <= cardinalityNext) return;
+        ensureCapacity(observationCardinalityNextNew);
+        // Oracle.grow() sets blockTimestamp = 1 with initialized still false
+        for (int i = cardinalityNext; i < observationCardinalityNextNew; i++) {
+            blockTimestamps[i] = 1;
+        }
+        cardinalityNext = observationCardinalityNextNew;
+    }
+
+    /** Mint(...) with amount > 0, or Burn(...) with the burnt amount negated */
+    public void onModifyPosition(long blockTimestamp, int tickLower, int tickUpper, BigInteger liquidityDelta) {
+        if (liquidityDelta.signum() == 0) return;
+        if (tickLower <= tick && tick < tickUpper) {
+            // _modifyPosition writes an observation with the liquidity before the change
+            write((int) blockTimestamp, tick, liquidity);
+            liquidity.add(Uint256.of(liquidityDelta));
+        }
+    }
+
+    /** Swap(sender, recipient, amount0, amount1, sqrtPriceX96, liquidity, tick) */
+    public void onSwap(long blockTimestamp, BigInteger liquidityAfter, int tickAfter) {
+        // swap() only writes an observation when the tick changes, with the pre-swap tick and liquidity
+        if (tickAfter != tick) {
+            write((int) blockTimestamp, tick, liquidity);
+            tick = tickAfter;
+        }
+        liquidity.set(liquidityAfter);
+    }
+
+    //
+    // Queries
+    //
+
+    /**
+     * Oracle.observe() for each secondsAgos[i].
+     * tickCumulatives receives the int56 accumulators, secondsPerLiquidity (if non null) the uint160 ones.
+     *
+     * @throws Revert with 'OLD' when a target predates the oldest observation
+     */
+    public void observe(long time, int[] secondsAgos, long[] tickCumulatives, Uint256[] secondsPerLiquidity) {
+        require(cardinality > 0, "I");
+        for (int i = 0; i < secondsAgos.length; i++) {
+            tickCumulatives[i] = observeSingle((int) time, secondsAgos[i], spl);
+            if (secondsPerLiquidity != null) {
+                secondsPerLiquidity[i].set(spl);
+            }
+        }
+    }
+
+    /** Time-weighted mean tick over [time - secondsAgo, time], rounded to negative infinity like OracleLibrary.consult */
+    public int arithmeticMeanTick(long time, int secondsAgo) {
+        require(secondsAgo != 0, "BP");
+        final long tickCumulativeNow = observeSingle((int) time, 0, spl);
+        final long tickCumulativeAgo = observeSingle((int) time, secondsAgo, splOther);
+        final long seconds = secondsAgo & UINT32_MASK;
+        final long delta = wrapInt56(tickCumulativeNow - tickCumulativeAgo);
+        int result = (int) (delta / seconds);
+        if (delta < 0 && delta % seconds != 0) result--;
+        return result;
+    }
+
+    /** Harmonic mean in-range liquidity over [time - secondsAgo, time] (OracleLibrary.consult) */
+    public BigInteger harmonicMeanLiquidity(long time, int secondsAgo) {
+        require(secondsAgo != 0, "BP");
+        observeSingle((int) time, 0, spl);
+        observeSingle((int) time, secondsAgo, splOther);
+        final BigInteger delta = spl.sub(splOther).toBigInteger().and(UINT160_MAX);
+        // (secondsAgo * type(uint160).max) / (delta << 32), truncated to uint128
+        return BigInteger.valueOf(secondsAgo & UINT32_MASK).multiply(UINT160_MAX)
+                .divide(delta.shiftLeft(32)).and(UINT128_MAX);
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public int getCardinality() {
+        return cardinality;
+    }
+
+    public int getCardinalityNext() {
+        return cardinalityNext;
+    }
+
+    public int getTick() {
+        return tick;
+    }
+
+    //
+    // Private: Oracle.sol port
+    //
+
+    private void write(int blockTimestamp, int tick, Uint256 liquidity) {
+        // early return if we've already written an observation this block
+        if (blockTimestamps[index] == blockTimestamp) return;
+
+        // if the conditions are right, we can bump the cardinality
+        final int cardinalityUpdated = cardinalityNext > cardinality && index == cardinality - 1
+                ? cardinalityNext
+                : cardinality;
+        final int indexUpdated = (index + 1) % cardinalityUpdated;
+        final long tickCumulative = transform(index, blockTimestamp, tick, liquidity, spl);
+        store(indexUpdated, blockTimestamp, tickCumulative, spl, true);
+        index = indexUpdated;
+        cardinality = cardinalityUpdated;
+    }
+
+    /** Oracle.transform(self[i], blockTimestamp, tick, liquidity): returns tickCumulative, sets splOut */
+    private long transform(int i, int blockTimestamp, int tick, Uint256 liquidity, Uint256 splOut) {
+        final long delta = (blockTimestamp - blockTimestamps[i]) & UINT32_MASK;
+        loadSpl(i, splOut);
+        numerator.setUnsigned(delta).shiftLeft(128);
+        if (liquidity.isZero()) {
+            denominator.setUnsigned(1);
+        } else {
+            denominator.set(liquidity);
+        }
+        fullMath.div(numerator, denominator, quotient);
+        truncate160(splOut.add(quotient));
+        return wrapInt56(tickCumulatives[i] + tick * delta);
+    }
+
+    private static boolean lte(int time, int a, int b) {
+        final long t = time & UINT32_MASK;
+        final long ua = a & UINT32_MASK;
+        final long ub = b & UINT32_MASK;
+        // if there hasn't been overflow, no need to adjust
+        if (ua <= t && ub <= t) return ua <= ub;
+
+        final long aAdjusted = ua > t ? ua : ua + (1L << 32);
+        final long bAdjusted = ub > t ? ub : ub + (1L << 32);
+        return aAdjusted <= bAdjusted;
+    }
+
+    /** Sets before* / after* (spl in splBefore / splAfter) around target */
+    private void binarySearch(int time, int target) {
+        long l = (index + 1) % cardinality; // oldest observation
+        long r = l + cardinality - 1; // newest observation
+        while (true) {
+            final long i = (l + r) / 2;
+            final int slot = (int) (i % cardinality);
+
+            // we've landed on an uninitialized tick, keep searching higher (more recently)
+            if (!initialized[slot]) {
+                l = i + 1;
+                continue;
+            }
+            beforeTimestamp = blockTimestamps[slot];
+            final int next = (int) ((i + 1) % cardinality);
+            afterTimestamp = blockTimestamps[next];
+
+            final boolean targetAtOrAfter = lte(time, beforeTimestamp, target);
+
+            // check if we've found the answer!
+            if (targetAtOrAfter && lte(time, target, afterTimestamp)) {
+                beforeTickCumulative = tickCumulatives[slot];
+                afterTickCumulative = tickCumulatives[next];
+                loadSpl(slot, splBefore);
+                loadSpl(next, splAfter);
+                return;
+            }
+
+            if (!targetAtOrAfter) r = i - 1;
+            else l = i + 1;
+        }
+    }
+
+    private void getSurroundingObservations(int time, int target) {
+        // optimistically set before to the newest observation
+        beforeTimestamp = blockTimestamps[index];
+        beforeTickCumulative = tickCumulatives[index];
+        loadSpl(index, splBefore);
+
+        // if the target is chronologically at or after the newest observation, we can early return
+        if (lte(time, beforeTimestamp, target)) {
+            if (beforeTimestamp == target) {
+                // if newest observation equals target, we're in the same block, so we can ignore atOrAfter
+                afterTimestamp = 0;
+            } else {
+                // otherwise, we need to transform
+                afterTickCumulative = transform(index, target, tick, liquidity, splAfter);
+                afterTimestamp = target;
+            }
+            return;
+        }
+
+        // now, set before to the oldest observation
+        int oldest = (index + 1) % cardinality;
+        if (!initialized[oldest]) oldest = 0;
+
+        // ensure that the target is chronologically at or after the oldest observation
+        require(lte(time, blockTimestamps[oldest], target), "OLD");
+
+        // if we've reached this point, we have to binary search
+        binarySearch(time, target);
+    }
+
+    /** Oracle.observeSingle(): returns tickCumulative, sets splOut */
+    private long observeSingle(int time, int secondsAgo, Uint256 splOut) {
+        if (secondsAgo == 0) {
+            if (blockTimestamps[index] != time) {
+                return transform(index, time, tick, liquidity, splOut);
+            }
+            loadSpl(index, splOut);
+            return tickCumulatives[index];
+        }
+
+        final int target = time - secondsAgo;
+        getSurroundingObservations(time, target);
+
+        if (target == beforeTimestamp) {
+            // we're at the left boundary
+            splOut.set(splBefore);
+            return beforeTickCumulative;
+        } else if (target == afterTimestamp) {
+            // we're at the right boundary
+            splOut.set(splAfter);
+            return afterTickCumulative;
+        } else {
+            // we're in the middle
+            final long observationTimeDelta = (afterTimestamp - beforeTimestamp) & UINT32_MASK;
+            final long targetDelta = (target - beforeTimestamp) & UINT32_MASK;
+            final long tickCumulative = wrapInt56(beforeTickCumulative
+                    + (wrapInt56(afterTickCumulative - beforeTickCumulative) / observationTimeDelta) * targetDelta);
+            truncate160(numerator.set(splAfter).sub(splBefore));
+            numerator.mul(denominator.setUnsigned(targetDelta));
+            fullMath.div(numerator, denominator.setUnsigned(observationTimeDelta), quotient);
+            truncate160(splOut.set(splBefore).add(truncate160(quotient)));
+            return tickCumulative;
+        }
+    }
+
+    private void store(int i, int blockTimestamp, long tickCumulative, Uint256 spl, boolean isInitialized) {
+        blockTimestamps[i] = blockTimestamp;
+        tickCumulatives[i] = tickCumulative;
+        splWords[3 * i] = spl.word(0);
+        splWords[3 * i + 1] = spl.word(1);
+        splWords[3 * i + 2] = spl.word(2);
+        initialized[i] = isInitialized;
+    }
+
+    private void loadSpl(int i, Uint256 out) {
+        out.set(0, splWords[3 * i + 2], splWords[3 * i + 1], splWords[3 * i]);
+    }
+
+    private void ensureCapacity(int size) {
+        assert(size <= MAX_CARDINALITY);
+        if (size <= blockTimestamps.length) return;
+        final int capacity = Math.min(MAX_CARDINALITY, Math.max(size, blockTimestamps.length * 2));
+        blockTimestamps = Arrays.copyOf(blockTimestamps, capacity);
+        tickCumulatives = Arrays.copyOf(tickCumulatives, capacity);
+        splWords = Arrays.copyOf(splWords, capacity * 3);
+        initialized = Arrays.copyOf(initialized, capacity);
+    }
+
+    private static long wrapInt56(long x) {
+        return (x << 8) >> 8;
+    }
+
+    private static Uint256 truncate160(Uint256 x) {
+        return x.set(0, x.word(2) & UINT32_MASK, x.word(1), x.word(0));
+    }
+}
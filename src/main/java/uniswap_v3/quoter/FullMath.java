@@ -0,0 +1,235 @@
+package uniswap_v3.quoter;
+
+import static uniswap_v3.quoter.Revert.require;
+
+/**
+ * Port of libraries/FullMath.sol (and UnsafeMath.divRoundingUp).
+ * 512-bit products are divided with Knuth's algorithm D on 32-bit digits
+ * held in scratch arrays owned by this instance: one instance per thread.
+ */
+public final class FullMath {
+
+    private static final long DIGIT_MASK = 0xFFFFFFFFL;
+    private static final long DIGIT_BASE = 0x100000000L;
+
+    private final Uint256 prod0 = new Uint256();
+    private final Uint256 prod1 = new Uint256();
+    private final Uint256 remainder = new Uint256();
+    private final Uint256 zero = new Uint256();
+    private final Uint256 shifted = new Uint256();
+    private final Uint256 q256 = new Uint256();
+
+    private final long[] un = new long[17];
+    private final long[] vn = new long[8];
+    private final long[] q = new long[16];
+
+    /** result = floor(a * b / denominator) with full 512-bit precision */
+    public Uint256 mulDiv(Uint256 a, Uint256 b, Uint256 denominator, Uint256 result) {
+        Uint256.mulFull(a, b, prod0, prod1);
+        if (prod1.isZero()) {
+            require(!denominator.isZero(), "FullMath");
+        } else {
+            // Make sure the result is less than 2**256. Also prevents denominator == 0
+            require(denominator.compareTo(prod1) > 0, "FullMath");
+        }
+        divide(prod0, prod1, denominator, result, remainder);
+        return result;
+    }
+
+    /** result = ceil(a * b / denominator) with full 512-bit precision */
+    public Uint256 mulDivRoundingUp(Uint256 a, Uint256 b, Uint256 denominator, Uint256 result) {
+        mulDiv(a, b, denominator, result);
+        if (!remainder.isZero()) {
+            require(!isMax(result), "FullMath");
+            result.addSmall(1);
+        }
+        return result;
+    }
+
+    /** EVM DIV: result = x / y, or 0 when y == 0 */
+    public Uint256 div(Uint256 x, Uint256 y, Uint256 result) {
+        if (y.isZero()) {
+            remainder.setZero();
+            return result.setZero();
+        }
+        divide(x, zero, y, result, remainder);
+        return result;
+    }
+
+    /** UnsafeMath.divRoundingUp: x / y rounded up, 0 when y == 0 */
+    public Uint256 divRoundingUp(Uint256 x, Uint256 y, Uint256 result) {
+        div(x, y, result);
+        if (!remainder.isZero()) {
+            result.addSmall(1);
+        }
+        return result;
+    }
+
+    /** EVM MOD: result = x % y, or 0 when y == 0 */
+    public Uint256 mod(Uint256 x, Uint256 y, Uint256 result) {
+        div(x, y, q256);
+        return result.set(remainder);
+    }
+
+    /** EVM ADDMOD: result = (a + b) % n on 257 bits, or 0 when n == 0 */
+    public Uint256 addMod(Uint256 a, Uint256 b, Uint256 n, Uint256 result) {
+        if (n.isZero()) {
+            return result.setZero();
+        }
+        prod0.set(a);
+        prod1.setUnsigned(prod0.addOverflows(b) ? 1 : 0);
+        divide(prod0, prod1, n, q256, result);
+        return result;
+    }
+
+    /** EVM MULMOD: result = (a * b) % n on 512 bits, or 0 when n == 0 */
+    public Uint256 mulMod(Uint256 a, Uint256 b, Uint256 n, Uint256 result) {
+        if (n.isZero()) {
+            return result.setZero();
+        }
+        Uint256.mulFull(a, b, prod0, prod1);
+        divide(prod0, prod1, n, q256, result);
+        return result;
+    }
+
+    /** Remainder left by the last mulDiv / div call (mulmod / mod in Solidity) */
+    public Uint256 lastRemainder() {
+        return remainder;
+    }
+
+    //
+    // Private
+    //
+
+    private static boolean isMax(Uint256 x) {
+        return (x.w0 & x.w1 & x.w2 & x.w3) == -1L;
+    }
+
+    /**
+     * [nHi nLo] / d  ->  quotient (low 256 bits), rem.
+     * d must be non zero. Outputs must not alias inputs.
+     */
+    private void divide(Uint256 nLo, Uint256 nHi, Uint256 d, Uint256 quotient, Uint256 rem) {
+
+        // 0) Powers of two (Q96, Q128) are plain shifts
+        if (Long.bitCount(d.w0) + Long.bitCount(d.w1) + Long.bitCount(d.w2) + Long.bitCount(d.w3) == 1) {
+            final int k = d.bitLength() - 1;
+            shifted.set(nHi).shiftLeft(256 - k);
+            rem.set(nLo).shiftLeft(256 - k).shiftRight(256 - k);
+            quotient.set(nLo).shiftRight(k).or(shifted);
+            return;
+        }
+
+        // 1) Splits into 32-bit digits
+        final long[] u = un;
+        for (int i = 0; i < 4; i++) {
+            final long wl = nLo.word(i);
+            final long wh = nHi.word(i);
+            u[2 * i] = wl & DIGIT_MASK;
+            u[2 * i + 1] = wl >>> 32;
+            u[8 + 2 * i] = wh & DIGIT_MASK;
+            u[8 + 2 * i + 1] = wh >>> 32;
+        }
+        u[16] = 0;
+        final long[] v = vn;
+        for (int i = 0; i < 4; i++) {
+            final long w = d.word(i);
+            v[2 * i] = w & DIGIT_MASK;
+            v[2 * i + 1] = w >>> 32;
+        }
+        int m = 16;
+        while (m > 0 && u[m - 1] == 0) m--;
+        int n = 8;
+        while (n > 0 && v[n - 1] == 0) n--;
+        assert(n > 0);
+
+        // 2) Trivial cases
+        if (m < n) {
+            rem.set(nLo);
+            quotient.setZero();
+            return;
+        }
+        java.util.Arrays.fill(q, 0);
+        if (n == 1) {
+            final long v0 = v[0];
+            long k = 0;
+            for (int j = m - 1; j >= 0; j--) {
+                final long num = (k << 32) | u[j];
+                q[j] = Long.divideUnsigned(num, v0);
+                k = num - q[j] * v0;
+            }
+            packQuotient(quotient);
+            rem.setUnsigned(k);
+            return;
+        }
+
+        // 3) Normalizes so that the top divisor digit has its high bit set
+        final int s = Integer.numberOfLeadingZeros((int) v[n - 1]);
+        for (int i = n - 1; i > 0; i--) {
+            v[i] = ((v[i] << s) | (v[i - 1] >>> (32 - s))) & DIGIT_MASK;
+        }
+        v[0] = (v[0] << s) & DIGIT_MASK;
+        u[m] = s == 0 ? 0 : u[m - 1] >>> (32 - s);
+        for (int i = m - 1; i > 0; i--) {
+            u[i] = ((u[i] << s) | (u[i - 1] >>> (32 - s))) & DIGIT_MASK;
+        }
+        u[0] = (u[0] << s) & DIGIT_MASK;
+
+        // 4) Main loop
+        final long vTop = v[n - 1];
+        final long vNext = v[n - 2];
+        for (int j = m - n; j >= 0; j--) {
+            final long num = (u[j + n] << 32) | u[j + n - 1];
+            long qhat = Long.divideUnsigned(num, vTop);
+            long rhat = num - qhat * vTop;
+            while (qhat >= DIGIT_BASE
+                    || Long.compareUnsigned(qhat * vNext, (rhat << 32) | u[j + n - 2]) > 0) {
+                qhat--;
+                rhat += vTop;
+                if (rhat >= DIGIT_BASE) break;
+            }
+
+            // Multiplies and subtracts
+            long k = 0;
+            long t;
+            for (int i = 0; i < n; i++) {
+                final long p = qhat * v[i];
+                t = u[i + j] - k - (p & DIGIT_MASK);
+                u[i + j] = t & DIGIT_MASK;
+                k = (p >>> 32) - (t >> 32);
+            }
+            t = u[j + n] - k;
+            u[j + n] = t & DIGIT_MASK;
+
+            q[j] = qhat;
+            if (t < 0) {
+                // Adds back
+                q[j]--;
+                k = 0;
+                for (int i = 0; i < n; i++) {
+                    t = u[i + j] + v[i] + k;
+                    u[i + j] = t & DIGIT_MASK;
+                    k = t >>> 32;
+                }
+                u[j + n] = (u[j + n] + k) & DIGIT_MASK;
+            }
+        }
+        packQuotient(quotient);
+
+        // 5) Unnormalizes the remainder
+        rem.setZero();
+        for (int i = 0; i < n; i++) {
+            final long digit = ((u[i] >>> s) | (u[i + 1] << (32 - s))) & DIGIT_MASK;
+            final int w = i >>> 1;
+            rem.setWord(w, rem.word(w) | ((i & 1) == 0 ? digit : digit << 32));
+        }
+    }
+
+    private void packQuotient(Uint256 quotient) {
+        quotient.set(
+                q[6] | (q[7] << 32),
+                q[4] | (q[5] << 32),
+                q[2] | (q[3] << 32),
+                q[0] | (q[1] << 32));
+    }
+}
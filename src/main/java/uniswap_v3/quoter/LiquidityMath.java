@@ -0,0 +1,28 @@
+package uniswap_v3.quoter;
+
+import static uniswap_v3.quoter.Revert.require;
+
+/**
+ * Port of libraries/LiquidityMath.sol.
+ */
+public final class LiquidityMath {
+
+    private LiquidityMath() {
+    }
+
+    /**
+     * z = x + y with x a uint128 and y an int128 (two's complement in 256 bits).
+     * Reverts with 'LS' on underflow and 'LA' on overflow, like the contract.
+     */
+    public static Uint256 addDelta(Uint256 x, Uint256 y, Uint256 z) {
+        final boolean negative = y.isNegative();
+        z.set(x).add(y);
+        if (negative) {
+            // x < 2^128 and |y| <= 2^127: the 256-bit sum is negative exactly when uint128 math would wrap
+            require(!z.isNegative(), "LS");
+        } else {
+            require(z.fitsIn(128), "LA");
+        }
+        return z;
+    }
+}
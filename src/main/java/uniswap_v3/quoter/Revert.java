@@ -0,0 +1,20 @@
+package uniswap_v3.quoter;
+
+/**
+ * Thrown where the Solidity code would revert.
+ * The message is the revert reason string, or the library name for bare require().
+ */
+public final class Revert extends ArithmeticException {
+
+    private static final long serialVersionUID = 1L;
+
+    public Revert(String reason) {
+        super(reason);
+    }
+
+    public static void require(boolean condition, String reason) {
+        if (!condition) {
+            throw new Revert(reason);
+        }
+    }
+}
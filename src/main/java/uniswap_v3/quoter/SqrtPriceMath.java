@@ -0,0 +1,166 @@
+package uniswap_v3.quoter;
+
+import static uniswap_v3.quoter.Revert.require;
+
+/**
+ * Port of libraries/SqrtPriceMath.sol.
+ * Not thread safe: scratch words are owned by the instance.
+ */
+public final class SqrtPriceMath {
+
+    static final int RESOLUTION = 96;
+    private static final Uint256 Q96 = new Uint256().setUnsigned(1).shiftLeft(RESOLUTION);
+
+    private final FullMath fullMath;
+
+    private final Uint256 numerator1 = new Uint256();
+    private final Uint256 numerator2 = new Uint256();
+    private final Uint256 product = new Uint256();
+    private final Uint256 productHi = new Uint256();
+    private final Uint256 denominator = new Uint256();
+    private final Uint256 quotient = new Uint256();
+    private final Uint256 tmp = new Uint256();
+    private final Uint256 lower = new Uint256();
+    private final Uint256 upper = new Uint256();
+
+    public SqrtPriceMath() {
+        this(new FullMath());
+    }
+
+    SqrtPriceMath(FullMath fullMath) {
+        this.fullMath = fullMath;
+    }
+
+    public Uint256 getNextSqrtPriceFromAmount0RoundingUp(Uint256 sqrtPX96, Uint256 liquidity,
+                                                          Uint256 amount, boolean add, Uint256 result) {
+        // we short circuit amount == 0 because the result is otherwise not guaranteed to equal the input price
+        if (amount.isZero()) {
+            return result.set(sqrtPX96);
+        }
+        numerator1.set(liquidity).shiftLeft(RESOLUTION);
+
+        // (product = amount * sqrtPX96) / amount == sqrtPX96  <=>  the product does not overflow
+        Uint256.mulFull(amount, sqrtPX96, product, productHi);
+        final boolean productFits = productHi.isZero();
+
+        if (add) {
+            if (productFits) {
+                denominator.set(numerator1);
+                if (!denominator.addOverflows(product)) {
+                    // always fits in 160 bits
+                    fullMath.mulDivRoundingUp(numerator1, sqrtPX96, denominator, result);
+                    return truncate160(result);
+                }
+            }
+            fullMath.div(numerator1, sqrtPX96, tmp);
+            require(!tmp.addOverflows(amount), "LowGasSafeMath");
+            fullMath.divRoundingUp(numerator1, tmp, result);
+            return truncate160(result);
+        } else {
+            // if the product overflows, we know the denominator underflows
+            // in addition, we must check that the denominator does not underflow
+            require(productFits && numerator1.compareTo(product) > 0, "SqrtPriceMath");
+            denominator.set(numerator1).sub(product);
+            fullMath.mulDivRoundingUp(numerator1, sqrtPX96, denominator, result);
+            require(result.fitsIn(160), "SafeCast");
+            return result;
+        }
+    }
+
+    public Uint256 getNextSqrtPriceFromAmount1RoundingDown(Uint256 sqrtPX96, Uint256 liquidity,
+                                                           Uint256 amount, boolean add, Uint256 result) {
+        // if we're adding (subtracting), rounding down requires rounding the quotient down (up)
+        // in both cases, avoid a mulDiv for most inputs
+        if (add) {
+            if (amount.fitsIn(160)) {
+                fullMath.div(tmp.set(amount).shiftLeft(RESOLUTION), liquidity, quotient);
+            } else {
+                fullMath.mulDiv(amount, Q96, liquidity, quotient);
+            }
+            result.set(sqrtPX96);
+            require(!result.addOverflows(quotient), "LowGasSafeMath");
+            require(result.fitsIn(160), "SafeCast");
+            return result;
+        } else {
+            if (amount.fitsIn(160)) {
+                fullMath.divRoundingUp(tmp.set(amount).shiftLeft(RESOLUTION), liquidity, quotient);
+            } else {
+                fullMath.mulDivRoundingUp(amount, Q96, liquidity, quotient);
+            }
+            require(sqrtPX96.compareTo(quotient) > 0, "SqrtPriceMath");
+            // always fits 160 bits
+            return result.set(sqrtPX96).sub(quotient);
+        }
+    }
+
+    public Uint256 getNextSqrtPriceFromInput(Uint256 sqrtPX96, Uint256 liquidity,
+                                             Uint256 amountIn, boolean zeroForOne, Uint256 result) {
+        require(!sqrtPX96.isZero(), "SqrtPriceMath");
+        require(!liquidity.isZero(), "SqrtPriceMath");
+
+        // round to make sure that we don't pass the target price
+        return zeroForOne
+                ? getNextSqrtPriceFromAmount0RoundingUp(sqrtPX96, liquidity, amountIn, true, result)
+                : getNextSqrtPriceFromAmount1RoundingDown(sqrtPX96, liquidity, amountIn, true, result);
+    }
+
+    public Uint256 getNextSqrtPriceFromOutput(Uint256 sqrtPX96, Uint256 liquidity,
+                                              Uint256 amountOut, boolean zeroForOne, Uint256 result) {
+        require(!sqrtPX96.isZero(), "SqrtPriceMath");
+        require(!liquidity.isZero(), "SqrtPriceMath");
+
+        // round to make sure that we pass the target price
+        return zeroForOne
+                ? getNextSqrtPriceFromAmount1RoundingDown(sqrtPX96, liquidity, amountOut, false, result)
+                : getNextSqrtPriceFromAmount0RoundingUp(sqrtPX96, liquidity, amountOut, false, result);
+    }
+
+    public Uint256 getAmount0Delta(Uint256 sqrtRatioAX96, Uint256 sqrtRatioBX96,
+                                   Uint256 liquidity, boolean roundUp, Uint256 result) {
+        sortInto(sqrtRatioAX96, sqrtRatioBX96);
+
+        numerator1.set(liquidity).shiftLeft(RESOLUTION);
+        numerator2.set(upper).sub(lower);
+
+        require(!lower.isZero(), "SqrtPriceMath");
+
+        if (roundUp) {
+            fullMath.mulDivRoundingUp(numerator1, numerator2, upper, tmp);
+            return fullMath.divRoundingUp(tmp, lower, result);
+        } else {
+            fullMath.mulDiv(numerator1, numerator2, upper, tmp);
+            return fullMath.div(tmp, lower, result);
+        }
+    }
+
+    public Uint256 getAmount1Delta(Uint256 sqrtRatioAX96, Uint256 sqrtRatioBX96,
+                                   Uint256 liquidity, boolean roundUp, Uint256 result) {
+        sortInto(sqrtRatioAX96, sqrtRatioBX96);
+        numerator2.set(upper).sub(lower);
+
+        return roundUp
+                ? fullMath.mulDivRoundingUp(liquidity, numerator2, Q96, result)
+                : fullMath.mulDiv(liquidity, numerator2, Q96, result);
+    }
+
+    //
+    // Private
+    //
+
+    private void sortInto(Uint256 a, Uint256 b) {
+        if (a.compareTo(b) > 0) {
+            lower.set(b);
+            upper.set(a);
+        } else {
+            lower.set(a);
+            upper.set(b);
+        }
+    }
+
+    /** uint160(x) */
+    private static Uint256 truncate160(Uint256 x) {
+        x.w3 = 0;
+        x.w2 &= 0xFFFFFFFFL;
+        return x;
+    }
+}
@@ -0,0 +1,113 @@
+package uniswap_v3.quoter;
+
+/**
+ * Port of libraries/SwapMath.sol.
+ * Not thread safe: scratch words are owned by the instance.
+ */
+public final class SwapMath {
+
+    private static final Uint256 ONE_MILLION = new Uint256(1_000_000);
+
+    /** Output of {@link #computeSwapStep}, reused across calls */
+    public static final class Step {
+        public final Uint256 sqrtRatioNextX96 = new Uint256();
+        public final Uint256 amountIn = new Uint256();
+        public final Uint256 amountOut = new Uint256();
+        public final Uint256 feeAmount = new Uint256();
+    }
+
+    private final FullMath fullMath;
+    private final SqrtPriceMath sqrtPriceMath;
+
+    private final Uint256 amountRemainingLessFee = new Uint256();
+    private final Uint256 amountRemainingAbs = new Uint256();
+    private final Uint256 feeComplement = new Uint256();
+    private final Uint256 fee = new Uint256();
+
+    public SwapMath() {
+        this(new FullMath());
+    }
+
+    SwapMath(FullMath fullMath) {
+        this.fullMath = fullMath;
+        this.sqrtPriceMath = new SqrtPriceMath(fullMath);
+    }
+
+    /**
+     * @param amountRemaining int256, positive for exact input
+     * @param feePips fee in hundredths of a bip
+     */
+    public Step computeSwapStep(Uint256 sqrtRatioCurrentX96, Uint256 sqrtRatioTargetX96,
+                                Uint256 liquidity, Uint256 amountRemaining, int feePips, Step step) {
+        final boolean zeroForOne = sqrtRatioCurrentX96.compareTo(sqrtRatioTargetX96) >= 0;
+        final boolean exactIn = !amountRemaining.isNegative();
+
+        final Uint256 next = step.sqrtRatioNextX96;
+        final Uint256 amountIn = step.amountIn;
+        final Uint256 amountOut = step.amountOut;
+        amountIn.setZero();
+        amountOut.setZero();
+        feeComplement.setUnsigned(1_000_000 - feePips);
+        fee.setUnsigned(feePips);
+
+        if (exactIn) {
+            fullMath.mulDiv(amountRemaining, feeComplement, ONE_MILLION, amountRemainingLessFee);
+            if (zeroForOne) {
+                sqrtPriceMath.getAmount0Delta(sqrtRatioTargetX96, sqrtRatioCurrentX96, liquidity, true, amountIn);
+            } else {
+                sqrtPriceMath.getAmount1Delta(sqrtRatioCurrentX96, sqrtRatioTargetX96, liquidity, true, amountIn);
+            }
+            if (amountRemainingLessFee.compareTo(amountIn) >= 0) {
+                next.set(sqrtRatioTargetX96);
+            } else {
+                sqrtPriceMath.getNextSqrtPriceFromInput(
+                        sqrtRatioCurrentX96, liquidity, amountRemainingLessFee, zeroForOne, next);
+            }
+        } else {
+            amountRemainingAbs.set(amountRemaining).negate();
+            if (zeroForOne) {
+                sqrtPriceMath.getAmount1Delta(sqrtRatioTargetX96, sqrtRatioCurrentX96, liquidity, false, amountOut);
+            } else {
+                sqrtPriceMath.getAmount0Delta(sqrtRatioCurrentX96, sqrtRatioTargetX96, liquidity, false, amountOut);
+            }
+            if (amountRemainingAbs.compareTo(amountOut) >= 0) {
+                next.set(sqrtRatioTargetX96);
+            } else {
+                sqrtPriceMath.getNextSqrtPriceFromOutput(
+                        sqrtRatioCurrentX96, liquidity, amountRemainingAbs, zeroForOne, next);
+            }
+        }
+
+        final boolean max = sqrtRatioTargetX96.equals(next);
+
+        // get the input/output amounts
+        if (zeroForOne) {
+            if (!(max && exactIn)) {
+                sqrtPriceMath.getAmount0Delta(next, sqrtRatioCurrentX96, liquidity, true, amountIn);
+            }
+            if (!(max && !exactIn)) {
+                sqrtPriceMath.getAmount1Delta(next, sqrtRatioCurrentX96, liquidity, false, amountOut);
+            }
+        } else {
+            if (!(max && exactIn)) {
+                sqrtPriceMath.getAmount1Delta(sqrtRatioCurrentX96, next, liquidity, true, amountIn);
+            }
+            if (!(max && !exactIn)) {
+                sqrtPriceMath.getAmount0Delta(sqrtRatioCurrentX96, next, liquidity, false, amountOut);
+            }
+        }
+
+        // cap the output amount to not exceed the remaining output amount
+        if (!exactIn && amountOut.compareTo(amountRemainingAbs) > 0) {
+            amountOut.set(amountRemainingAbs);
+        }
+
+        if (exactIn && !next.equals(sqrtRatioTargetX96)) {
+            // we didn't reach the target, so take the remainder of the maximum input as fee
+            step.feeAmount.set(amountRemaining).sub(amountIn);
+        } else {
+            fullMath.mulDivRoundingUp(amountIn, fee, feeComplement, step.feeAmount);
+        }
+        return step;
+    }
+}
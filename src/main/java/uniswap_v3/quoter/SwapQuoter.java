@@ -0,0 +1,301 @@
+package uniswap_v3.quoter;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+import static uniswap_v3.quoter.Revert.require;
+
+/**
+ * Off-chain replica of UniswapV3Pool.swap() that only computes amounts.
+ *
+ * The pool state (slot0 price and tick, in-range liquidity, initialized ticks and their
+ * liquidityNet) is loaded once; quote() then runs the exact same step loop as the contract
+ * using 256-bit arithmetic on primitive longs. Oracle writes, fee growth and protocol fees
+ * do not affect the returned amounts and are skipped.
+ *
+ * A quoter keeps scratch words to avoid allocating: use one instance per thread.
+ */
+public final class SwapQuoter {
+
+    /** Result of {@link #quote}, reused across calls */
+    public static final class Quote {
+        /** int256 amounts, positive when paid to the pool */
+        public final Uint256 amount0 = new Uint256();
+        public final Uint256 amount1 = new Uint256();
+        public final Uint256 sqrtPriceX96After = new Uint256();
+        public final Uint256 liquidityAfter = new Uint256();
+        public int tickAfter;
+        public int initializedTicksCrossed;
+        public int steps;
+    }
+
+    private final int fee;
+    private final TickBitmap tickBitmap;
+    private final TickMath tickMath = new TickMath();
+    private final SwapMath swapMath = new SwapMath();
+
+    // Pool state
+    private final Uint256 sqrtPriceX96 = new Uint256();
+    private final Uint256 liquidity = new Uint256();
+    private int tick;
+
+    // Initialized ticks, sorted, with int128 liquidityNet and uint128 liquidityGross split in two longs
+    private int[] ticks = new int[16];
+    private long[] liquidityNetHi = new long[16];
+    private long[] liquidityNetLo = new long[16];
+    private long[] liquidityGrossHi = new long[16];
+    private long[] liquidityGrossLo = new long[16];
+    private int tickCount;
+
+    // Swap scratch
+    private final SwapMath.Step step = new SwapMath.Step();
+    private final Uint256 amountSpecifiedRemaining = new Uint256();
+    private final Uint256 amountCalculated = new Uint256();
+    private final Uint256 stateSqrtPriceX96 = new Uint256();
+    private final Uint256 stateLiquidity = new Uint256();
+    private final Uint256 sqrtPriceStartX96 = new Uint256();
+    private final Uint256 sqrtPriceNextX96 = new Uint256();
+    private final Uint256 sqrtPriceTargetX96 = new Uint256();
+    private final Uint256 liquidityNet = new Uint256();
+    private final Uint256 sum = new Uint256();
+    private final Uint256 tmp = new Uint256();
+
+    public SwapQuoter(int fee, int tickSpacing) {
+        assert(fee >= 0 && fee < 1_000_000);
+        this.fee = fee;
+        this.tickBitmap = new TickBitmap(tickSpacing);
+    }
+
+    //
+    // Pool state loading
+    //
+
+    /** Mirrors slot0.sqrtPriceX96 / slot0.tick */
+    public void setSlot0(BigInteger sqrtPriceX96, int tick) {
+        this.sqrtPriceX96.set(sqrtPriceX96);
+        this.tick = tick;
+    }
+
+    /** Mirrors the pool's in-range liquidity */
+    public void setLiquidity(BigInteger liquidity) {
+        this.liquidity.set(liquidity);
+    }
+
+    /**
+     * Mirrors ticks[tick] for a tick already initialized in the pool (e.g. read with ticks(int24)).
+     * A zero liquidityGross uninitializes the tick.
+     */
+    public void setTick(int tick, BigInteger liquidityGross, BigInteger liquidityNet) {
+        final int index = Arrays.binarySearch(ticks, 0, tickCount, tick);
+        final boolean wasInitialized = index >= 0;
+        final boolean initialized = liquidityGross.signum() != 0;
+        if (initialized != wasInitialized) {
+            tickBitmap.flipTick(tick);
+        }
+        if (initialized) {
+            final int i = wasInitialized ? index : insertTick(-index - 1, tick);
+            liquidityNetHi[i] = liquidityNet.shiftRight(64).longValue();
+            liquidityNetLo[i] = liquidityNet.longValue();
+            liquidityGrossHi[i] = liquidityGross.shiftRight(64).longValue();
+            liquidityGrossLo[i] = liquidityGross.longValue();
+        } else if (wasInitialized) {
+            removeTick(index);
+        }
+    }
+
+    /**
+     * Replays UniswapV3Pool._modifyPosition tick bookkeeping for a Mint (positive delta) or Burn (negative delta).
+     */
+    public void modifyPosition(int tickLower, int tickUpper, BigInteger liquidityDelta) {
+        assert(tickLower < tickUpper);
+        updateTick(tickLower, liquidityDelta, false);
+        updateTick(tickUpper, liquidityDelta, true);
+        if (tickLower <= tick && tick < tickUpper) {
+            LiquidityMath.addDelta(liquidity, tmp.set(liquidityDelta), liquidity);
+        }
+    }
+
+    public int getTickCount() {
+        return tickCount;
+    }
+
+    //
+    // Quoting
+    //
+
+    /**
+     * Same arguments as UniswapV3Pool.swap() (minus recipient and callback data).
+     *
+     * @param amountSpecified int256, positive for exact input, negative for exact output
+     * @throws Revert where the contract would revert
+     */
+    public Quote quote(boolean zeroForOne, Uint256 amountSpecified, Uint256 sqrtPriceLimitX96, Quote result) {
+        require(!amountSpecified.isZero(), "AS");
+        require(zeroForOne
+                        ? sqrtPriceLimitX96.compareTo(sqrtPriceX96) < 0
+                                && sqrtPriceLimitX96.compareTo(TickMath.minSqrtRatio()) > 0
+                        : sqrtPriceLimitX96.compareTo(sqrtPriceX96) > 0
+                                && sqrtPriceLimitX96.compareTo(TickMath.maxSqrtRatio()) < 0,
+                "SPL");
+
+        final boolean exactInput = !amountSpecified.isNegative();
+
+        amountSpecifiedRemaining.set(amountSpecified);
+        amountCalculated.setZero();
+        stateSqrtPriceX96.set(sqrtPriceX96);
+        stateLiquidity.set(liquidity);
+        int stateTick = tick;
+        int crossed = 0;
+        int steps = 0;
+
+        // continue swapping as long as we haven't used the entire input/output and haven't reached the price limit
+        while (!amountSpecifiedRemaining.isZero() && !stateSqrtPriceX96.equals(sqrtPriceLimitX96)) {
+            sqrtPriceStartX96.set(stateSqrtPriceX96);
+
+            int tickNext = tickBitmap.nextInitializedTickWithinOneWord(stateTick, zeroForOne);
+            final boolean initialized = tickBitmap.lastInitialized();
+
+            // ensure that we do not overshoot the min/max tick, as the tick bitmap is not aware of these bounds
+            if (tickNext < TickMath.MIN_TICK) {
+                tickNext = TickMath.MIN_TICK;
+            } else if (tickNext > TickMath.MAX_TICK) {
+                tickNext = TickMath.MAX_TICK;
+            }
+
+            // get the price for the next tick
+            tickMath.getSqrtRatioAtTick(tickNext, sqrtPriceNextX96);
+
+            // compute values to swap to the target tick, price limit, or point where input/output amount is exhausted
+            final boolean limitFirst = zeroForOne
+                    ? sqrtPriceNextX96.compareTo(sqrtPriceLimitX96) < 0
+                    : sqrtPriceNextX96.compareTo(sqrtPriceLimitX96) > 0;
+            sqrtPriceTargetX96.set(limitFirst ? sqrtPriceLimitX96 : sqrtPriceNextX96);
+            swapMath.computeSwapStep(stateSqrtPriceX96, sqrtPriceTargetX96, stateLiquidity,
+                    amountSpecifiedRemaining, fee, step);
+            stateSqrtPriceX96.set(step.sqrtRatioNextX96);
+            steps++;
+
+            // SafeCast.toInt256 on both amounts
+            sum.set(step.amountIn).add(step.feeAmount);
+            require(!sum.isNegative() && !step.amountOut.isNegative(), "SafeCast");
+            if (exactInput) {
+                amountSpecifiedRemaining.sub(sum);
+                subSigned(amountCalculated, step.amountOut);
+            } else {
+                amountSpecifiedRemaining.add(step.amountOut);
+                addSigned(amountCalculated, sum);
+            }
+
+            // shift tick if we reached the next price
+            if (stateSqrtPriceX96.equals(sqrtPriceNextX96)) {
+                // if the tick is initialized, run the tick transition
+                if (initialized) {
+                    loadLiquidityNet(tickNext, liquidityNet);
+                    // if we're moving leftward, we interpret liquidityNet as the opposite sign
+                    if (zeroForOne) liquidityNet.negate();
+                    LiquidityMath.addDelta(stateLiquidity, liquidityNet, stateLiquidity);
+                    crossed++;
+                }
+                stateTick = zeroForOne ? tickNext - 1 : tickNext;
+            } else if (!stateSqrtPriceX96.equals(sqrtPriceStartX96)) {
+                // recompute unless we're on a lower tick boundary (i.e. already transitioned ticks), and haven't moved
+                stateTick = tickMath.getTickAtSqrtRatio(stateSqrtPriceX96);
+            }
+        }
+
+        // (amount0, amount1) = zeroForOne == exactInput ? (specified - remaining, calculated) : (calculated, ...)
+        final Uint256 specifiedSide = zeroForOne == exactInput ? result.amount0 : result.amount1;
+        final Uint256 calculatedSide = zeroForOne == exactInput ? result.amount1 : result.amount0;
+        specifiedSide.set(amountSpecified).sub(amountSpecifiedRemaining);
+        calculatedSide.set(amountCalculated);
+
+        result.sqrtPriceX96After.set(stateSqrtPriceX96);
+        result.liquidityAfter.set(stateLiquidity);
+        result.tickAfter = stateTick;
+        result.initializedTicksCrossed = crossed;
+        result.steps = steps;
+        return result;
+    }
+
+    /** Convenience wrapper for one-off quotes; allocates. */
+    public Quote quote(boolean zeroForOne, BigInteger amountSpecified, BigInteger sqrtPriceLimitX96) {
+        return quote(zeroForOne, Uint256.of(amountSpecified), Uint256.of(sqrtPriceLimitX96), new Quote());
+    }
+
+    //
+    // Private
+    //
+
+    /** LowGasSafeMath.add(int256, int256) */
+    private static void addSigned(Uint256 x, Uint256 y) {
+        final boolean xNegative = x.isNegative();
+        final boolean yNegative = y.isNegative();
+        x.add(y);
+        // overflow only when both operands share a sign that the result lost
+        require(xNegative != yNegative || x.isNegative() == yNegative, "LowGasSafeMath");
+    }
+
+    /** LowGasSafeMath.sub(int256, int256) */
+    private static void subSigned(Uint256 x, Uint256 y) {
+        final boolean xNegative = x.isNegative();
+        final boolean yNegative = y.isNegative();
+        x.sub(y);
+        require(xNegative == yNegative || x.isNegative() == xNegative, "LowGasSafeMath");
+    }
+
+    private void loadLiquidityNet(int tick, Uint256 result) {
+        final int index = Arrays.binarySearch(ticks, 0, tickCount, tick);
+        assert(index >= 0);
+        final long hi = liquidityNetHi[index];
+        final long ext = hi >> 63;
+        result.set(ext, ext, hi, liquidityNetLo[index]);
+    }
+
+    /** Tick.update() bookkeeping: liquidityGross and liquidityNet, flipping the bitmap when needed */
+    private void updateTick(int tick, BigInteger liquidityDelta, boolean upper) {
+        final int index = Arrays.binarySearch(ticks, 0, tickCount, tick);
+        BigInteger gross = BigInteger.ZERO;
+        BigInteger net = BigInteger.ZERO;
+        if (index >= 0) {
+            final long netHi = liquidityNetHi[index];
+            gross = new Uint256().set(0, 0, liquidityGrossHi[index], liquidityGrossLo[index]).toBigInteger();
+            net = new Uint256().set(netHi >> 63, netHi >> 63, netHi, liquidityNetLo[index]).toSignedBigInteger();
+        }
+        final BigInteger grossAfter = gross.add(liquidityDelta);
+        require(grossAfter.signum() >= 0, "LS");
+        require(grossAfter.bitLength() <= 128, "LA");
+        // when the lower (upper) tick is crossed left to right (right to left), liquidity must be added (removed)
+        final BigInteger netAfter = upper ? net.subtract(liquidityDelta) : net.add(liquidityDelta);
+        setTick(tick, grossAfter, netAfter);
+    }
+
+    private int insertTick(int position, int tick) {
+        if (tickCount == ticks.length) {
+            final int capacity = ticks.length * 2;
+            ticks = Arrays.copyOf(ticks, capacity);
+            liquidityNetHi = Arrays.copyOf(liquidityNetHi, capacity);
+            liquidityNetLo = Arrays.copyOf(liquidityNetLo, capacity);
+            liquidityGrossHi = Arrays.copyOf(liquidityGrossHi, capacity);
+            liquidityGrossLo = Arrays.copyOf(liquidityGrossLo, capacity);
+        }
+        final int tail = tickCount - position;
+        System.arraycopy(ticks, position, ticks, position + 1, tail);
+        System.arraycopy(liquidityNetHi, position, liquidityNetHi, position + 1, tail);
+        System.arraycopy(liquidityNetLo, position, liquidityNetLo, position + 1, tail);
+        System.arraycopy(liquidityGrossHi, position, liquidityGrossHi, position + 1, tail);
+        System.arraycopy(liquidityGrossLo, position, liquidityGrossLo, position + 1, tail);
+        ticks[position] = tick;
+        tickCount++;
+        return position;
+    }
+
+    private void removeTick(int position) {
+        final int tail = tickCount - position - 1;
+        System.arraycopy(ticks, position + 1, ticks, position, tail);
+        System.arraycopy(liquidityNetHi, position + 1, liquidityNetHi, position, tail);
+        System.arraycopy(liquidityNetLo, position + 1, liquidityNetLo, position, tail);
+        System.arraycopy(liquidityGrossHi, position + 1, liquidityGrossHi, position, tail);
+        System.arraycopy(liquidityGrossLo, position + 1, liquidityGrossLo, position, tail);
+        tickCount--;
+    }
+}
@@ -0,0 +1,124 @@
+package uniswap_v3.quoter;
+
+import static uniswap_v3.quoter.Revert.require;
+
+/**
+ * Port of libraries/TickBitmap.sol.
+ * The Solidity mapping(int16 => uint256) is flattened into one long[]:
+ * compressed ticks only span [MIN_TICK, MAX_TICK] so every reachable word
+ * fits in a dense array of about 220 KB, and lookups never allocate.
+ */
+public final class TickBitmap {
+
+    // int16 word positions reachable from compressed ticks (and compressed + 1)
+    private static final int MIN_WORD = (TickMath.MIN_TICK >> 8) - 1;
+    private static final int MAX_WORD = (TickMath.MAX_TICK >> 8) + 1;
+
+    private final int tickSpacing;
+    private final long[] words = new long[(MAX_WORD - MIN_WORD + 1) * 4];
+
+    private boolean initialized;
+
+    public TickBitmap(int tickSpacing) {
+        assert(tickSpacing > 0);
+        this.tickSpacing = tickSpacing;
+    }
+
+    public int getTickSpacing() {
+        return tickSpacing;
+    }
+
+    public void flipTick(int tick) {
+        require(tick % tickSpacing == 0, "TickBitmap"); // ensure that the tick is spaced
+        final int compressed = tick / tickSpacing;
+        final int limb = limbIndex(compressed >> 8, compressed & 0xFF);
+        words[limb] ^= 1L << (compressed & 63);
+    }
+
+    public boolean isInitialized(int tick) {
+        if (tick % tickSpacing != 0) return false;
+        final int compressed = tick / tickSpacing;
+        final int limb = limbIndex(compressed >> 8, compressed & 0xFF);
+        return (words[limb] & (1L << (compressed & 63))) != 0;
+    }
+
+    /**
+     * Next initialized tick contained in the same word (or adjacent word) as the tick that is either
+     * to the left (less than or equal to) or right (greater than) of the given tick.
+     * Whether the returned tick is initialized is available from {@link #lastInitialized()}.
+     */
+    public int nextInitializedTickWithinOneWord(int tick, boolean lte) {
+        int compressed = tick / tickSpacing;
+        if (tick < 0 && tick % tickSpacing != 0) compressed--; // round towards negative infinity
+
+        if (lte) {
+            final int wordPos = compressed >> 8;
+            final int bitPos = compressed & 0xFF;
+            // all the 1s at or to the right of the current bitPos
+            final int msb = mostSignificantBitAtOrBelow(wordPos, bitPos);
+
+            // if there are no initialized ticks to the right of or at the current tick, return rightmost in the word
+            initialized = msb >= 0;
+            return initialized
+                    ? (compressed - (bitPos - msb)) * tickSpacing
+                    : (compressed - bitPos) * tickSpacing;
+        } else {
+            // start from the word of the next tick, since the current tick state doesn't matter
+            final int wordPos = (compressed + 1) >> 8;
+            final int bitPos = (compressed + 1) & 0xFF;
+            // all the 1s at or to the left of the bitPos
+            final int lsb = leastSignificantBitAtOrAbove(wordPos, bitPos);
+
+            // if there are no initialized ticks to the left of the current tick, return leftmost in the word
+            initialized = lsb >= 0;
+            return initialized
+                    ? (compressed + 1 + (lsb - bitPos)) * tickSpacing
+                    : (compressed + 1 + (255 - bitPos)) * tickSpacing;
+        }
+    }
+
+    /** Second return value of the last {@link #nextInitializedTickWithinOneWord} call */
+    public boolean lastInitialized() {
+        return initialized;
+    }
+
+    //
+    // Private
+    //
+
+    private static int limbIndex(int wordPos, int bitPos) {
+        assert(wordPos >= MIN_WORD && wordPos <= MAX_WORD);
+        return (wordPos - MIN_WORD) * 4 + (bitPos >>> 6);
+    }
+
+    /** BitMath.mostSignificantBit(word & mask(<= bitPos)), or -1 when the masked word is zero */
+    private int mostSignificantBitAtOrBelow(int wordPos, int bitPos) {
+        final int base = limbIndex(wordPos, 0);
+        final int top = bitPos >>> 6;
+        final int shift = bitPos & 63;
+        final long topMask = shift == 63 ? -1L : (1L << (shift + 1)) - 1;
+        long limb = words[base + top] & topMask;
+        for (int i = top; i >= 0; i--) {
+            if (i != top) limb = words[base + i];
+            if (limb != 0) {
+                return i * 64 + 63 - Long.numberOfLeadingZeros(limb);
+            }
+        }
+        return -1;
+    }
+
+    /** BitMath.leastSignificantBit(word & mask(>= bitPos)), or -1 when the masked word is zero */
+    private int leastSignificantBitAtOrAbove(int wordPos, int bitPos) {
+        final int base = limbIndex(wordPos, 0);
+        final int bottom = bitPos >>> 6;
+        final long bottomMask = -1L << (bitPos & 63);
+        long limb = words[base + bottom] & bottomMask;
+        for (int i = bottom; i < 4; i++) {
+            if (i != bottom) limb = words[base + i];
+            if (limb != 0) {
+                return i * 64 + Long.numberOfTrailingZeros(limb);
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,221 @@
+package uniswap_v3.quoter;
+
+import java.util.Arrays;
+
+import static uniswap_v3.quoter.Revert.require;
+
+/**
+ * Port of libraries/TickMath.sol.
+ * Not thread safe: scratch words are owned by the instance.
+ */
+public final class TickMath {
+
+    public static final int MIN_TICK = -887272;
+    public static final int MAX_TICK = -MIN_TICK;
+
+    private static final Uint256 MIN_SQRT_RATIO = Uint256.of("4295128739");
+    private static final Uint256 MAX_SQRT_RATIO = Uint256.of("1461446703485210103287273052203988822378723970342");
+
+    // Multipliers applied for each bit of |tick| (bit 0 handled as the initial ratio)
+    private static final Uint256[] RATIO_FACTORS = new Uint256[] {
+            Uint256.of("0xfffcb933bd6fad37aa2d162d1a594001"),
+            Uint256.of("0xfff97272373d413259a46990580e213a"),
+            Uint256.of("0xfff2e50f5f656932ef12357cf3c7fdcc"),
+            Uint256.of("0xffe5caca7e10e4e61c3624eaa0941cd0"),
+            Uint256.of("0xffcb9843d60f6159c9db58835c926644"),
+            Uint256.of("0xff973b41fa98c081472e6896dfb254c0"),
+            Uint256.of("0xff2ea16466c96a3843ec78b326b52861"),
+            Uint256.of("0xfe5dee046a99a2a811c461f1969c3053"),
+            Uint256.of("0xfcbe86c7900a88aedcffc83b479aa3a4"),
+            Uint256.of("0xf987a7253ac413176f2b074cf7815e54"),
+            Uint256.of("0xf3392b0822b70005940c7a398e4b70f3"),
+            Uint256.of("0xe7159475a2c29b7443b29c7fa6e889d9"),
+            Uint256.of("0xd097f3bdfd2022b8845ad8f792aa5825"),
+            Uint256.of("0xa9f746462d870fdf8a65dc1f90e061e5"),
+            Uint256.of("0x70d869a156d2a1b890bb3df62baf32f7"),
+            Uint256.of("0x31be135f97d08fd981231505542fcfa6"),
+            Uint256.of("0x9aa508b5b7a84e1c677de54f3e99bc9"),
+            Uint256.of("0x5d6af8dedb81196699c329225ee604"),
+            Uint256.of("0x2216e584f5fa1ea926041bedfe98"),
+            Uint256.of("0x48a170391f7dc42444e8fa2")
+    };
+
+    private static final Uint256 LOG_SQRT10001 = Uint256.of("255738958999603826347141");
+    private static final Uint256 TICK_LOW_OFFSET = Uint256.of("3402992956809132418596140100660247210");
+    private static final Uint256 TICK_HI_OFFSET = Uint256.of("291339464771989622907027621153398088495");
+
+    /** getSqrtRatioAtTick(MIN_TICK), as a copy: Uint256 is mutable */
+    public static Uint256 minSqrtRatio() {
+        return new Uint256(MIN_SQRT_RATIO);
+    }
+
+    /** getSqrtRatioAtTick(MAX_TICK), as a copy */
+    public static Uint256 maxSqrtRatio() {
+        return new Uint256(MAX_SQRT_RATIO);
+    }
+
+    // Direct-mapped cache of recent getSqrtRatioAtTick results (160 bits = three limbs per entry)
+    private static final int CACHE_SIZE = 4096;
+    private final int[] cachedTicks = new int[CACHE_SIZE];
+    private final long[] cachedRatios = new long[CACHE_SIZE * 3];
+
+    private final FullMath fullMath = new FullMath();
+    private final Uint256 ratio = new Uint256();
+    private final Uint256 max = new Uint256().setMax();
+    private final Uint256 quotient = new Uint256();
+    private final Uint256 log = new Uint256();
+    private final Uint256 tmp = new Uint256();
+    private final Uint256 check = new Uint256();
+
+    public TickMath() {
+        Arrays.fill(cachedTicks, Integer.MIN_VALUE);
+    }
+
+    /** result = sqrt(1.0001^tick) * 2^96 */
+    public Uint256 getSqrtRatioAtTick(int tick, Uint256 result) {
+        require(tick >= MIN_TICK && tick <= MAX_TICK, "T");
+        final int absTick = Math.abs(tick);
+
+        final int slot = tick & (CACHE_SIZE - 1);
+        if (cachedTicks[slot] == tick) {
+            return result.set(0, cachedRatios[3 * slot + 2], cachedRatios[3 * slot + 1], cachedRatios[3 * slot]);
+        }
+        computeSqrtRatioAtTick(tick, absTick, result);
+        cachedTicks[slot] = tick;
+        cachedRatios[3 * slot] = result.w0;
+        cachedRatios[3 * slot + 1] = result.w1;
+        cachedRatios[3 * slot + 2] = result.w2;
+        return result;
+    }
+
+    private void computeSqrtRatioAtTick(int tick, int absTick, Uint256 result) {
+        // ratio stays below 2^128 after the first multiplication: keep it in two longs
+        long hi;
+        long lo;
+        boolean exactPowerOf128 = (absTick & 0x1) == 0; // ratio == 2^128, does not fit in two longs
+        hi = exactPowerOf128 ? 0 : RATIO_FACTORS[0].w1;
+        lo = exactPowerOf128 ? 0 : RATIO_FACTORS[0].w0;
+        for (int bit = 1; bit < RATIO_FACTORS.length; bit++) {
+            if ((absTick & (1 << bit)) != 0) {
+                final Uint256 factor = RATIO_FACTORS[bit];
+                if (exactPowerOf128) {
+                    hi = factor.w1;
+                    lo = factor.w0;
+                    exactPowerOf128 = false;
+                } else {
+                    // (ratio * factor) >> 128, i.e. the upper half of a 128 x 128 product
+                    final long fHi = factor.w1;
+                    final long fLo = factor.w0;
+                    final long llHi = Uint256.unsignedMultiplyHigh(lo, fLo);
+                    final long lhLo = lo * fHi;
+                    final long lhHi = Uint256.unsignedMultiplyHigh(lo, fHi);
+                    final long hlLo = hi * fLo;
+                    final long hlHi = Uint256.unsignedMultiplyHigh(hi, fLo);
+                    final long hhLo = hi * fHi;
+                    final long hhHi = Uint256.unsignedMultiplyHigh(hi, fHi);
+                    // middle column: llHi + lhLo + hlLo, only its carries survive the shift
+                    long mid = llHi + lhLo;
+                    long carry = Long.compareUnsigned(mid, lhLo) < 0 ? 1 : 0;
+                    mid += hlLo;
+                    carry += Long.compareUnsigned(mid, hlLo) < 0 ? 1 : 0;
+                    // upper columns: hhLo + lhHi + hlHi + carry, then hhHi
+                    long r0 = hhLo + lhHi;
+                    long c1 = Long.compareUnsigned(r0, lhHi) < 0 ? 1 : 0;
+                    r0 += hlHi;
+                    c1 += Long.compareUnsigned(r0, hlHi) < 0 ? 1 : 0;
+                    r0 += carry;
+                    c1 += Long.compareUnsigned(r0, carry) < 0 ? 1 : 0;
+                    lo = r0;
+                    hi = hhHi + c1;
+                }
+            }
+        }
+        if (exactPowerOf128) {
+            ratio.set(0, 1, 0, 0);
+        } else {
+            ratio.set(0, 0, hi, lo);
+        }
+
+        if (tick > 0) {
+            fullMath.div(max, ratio, quotient);
+            ratio.set(quotient);
+        }
+
+        // this divides by 1<<32 rounding up to go from a Q128.128 to a Q128.96
+        final boolean roundUp = (ratio.w0 & 0xFFFFFFFFL) != 0;
+        result.set(ratio).shiftRight(32);
+        if (roundUp) {
+            result.addSmall(1);
+        }
+    }
+
+    /** Greatest tick such that getSqrtRatioAtTick(tick) <= sqrtPriceX96 */
+    public int getTickAtSqrtRatio(Uint256 sqrtPriceX96) {
+        // second inequality must be < because the price can never reach the price at the max tick
+        require(sqrtPriceX96.compareTo(MIN_SQRT_RATIO) >= 0 && sqrtPriceX96.compareTo(MAX_SQRT_RATIO) < 0, "R");
+
+        // ratio = sqrtPriceX96 << 32 fits in 192 bits
+        ratio.set(sqrtPriceX96).shiftLeft(32);
+        final int msb = ratio.bitLength() - 1;
+
+        // r normalized to 128 bits: [rHi rLo]
+        tmp.set(ratio);
+        if (msb >= 128) {
+            tmp.shiftRight(msb - 127);
+        } else {
+            tmp.shiftLeft(127 - msb);
+        }
+        long rLo = tmp.w0;
+        long rHi = tmp.w1;
+
+        // log_2 = (msb - 128) << 64 | fractional bits
+        long fraction = 0;
+        for (int bit = 63; bit >= 50; bit--) {
+            // r := (r * r) >> 127, r < 2^128 so r * r < 2^256
+            final long p0Hi = Uint256.unsignedMultiplyHigh(rLo, rLo);
+            final long crossLo = rLo * rHi;
+            final long crossHi = Uint256.unsignedMultiplyHigh(rLo, rHi);
+            final long p2Lo = rHi * rHi;
+            final long p2Hi = Uint256.unsignedMultiplyHigh(rHi, rHi);
+            // product = p0 + 2 * cross << 64 + p2 << 128, limbs [s3 s2 s1 s0]
+            long s1 = p0Hi + crossLo;
+            long c = Long.compareUnsigned(s1, crossLo) < 0 ? 1 : 0;
+            final long s1b = s1 + crossLo;
+            c += Long.compareUnsigned(s1b, crossLo) < 0 ? 1 : 0;
+            s1 = s1b;
+            long s2 = p2Lo + crossHi;
+            long c2 = Long.compareUnsigned(s2, crossHi) < 0 ? 1 : 0;
+            long s2b = s2 + crossHi;
+            c2 += Long.compareUnsigned(s2b, crossHi) < 0 ? 1 : 0;
+            s2 = s2b + c;
+            c2 += Long.compareUnsigned(s2, c) < 0 ? 1 : 0;
+            final long s3 = p2Hi + c2;
+            // >> 127
+            final long nLo = (s1 >>> 63) | (s2 << 1);
+            final long nHi = (s2 >>> 63) | (s3 << 1);
+            final long nTop = s3 >>> 63; // bit 128 of the shifted product
+            final long f = nTop;
+            fraction |= f << bit;
+            if (f != 0) {
+                rLo = (nLo >>> 1) | (nHi << 63);
+                rHi = (nHi >>> 1) | (nTop << 63);
+            } else {
+                rLo = nLo;
+                rHi = nHi;
+            }
+        }
+        final long integer = msb - 128;
+        log.set(integer >> 63, integer >> 63, integer, fraction);
+
+        // 128.128 number
+        log.mul(LOG_SQRT10001);
+
+        final int tickLow = (int) tmp.set(log).sub(TICK_LOW_OFFSET).shiftRightArithmetic(128).w0;
+        final int tickHi = (int) tmp.set(log).add(TICK_HI_OFFSET).shiftRightArithmetic(128).w0;
+
+        if (tickLow == tickHi) {
+            return tickLow;
+        }
+        return getSqrtRatioAtTick(tickHi, check).compareTo(sqrtPriceX96) <= 0 ? tickHi : tickLow;
+    }
+}
@@ -0,0 +1,447 @@
+package uniswap_v3.quoter;
+
+import java.math.BigInteger;
+
+/**
+ * Mutable 256-bit word stored in four primitive longs (little endian).
+ * Arithmetic wraps modulo 2^256 exactly like the EVM; signed operations
+ * interpret the same bits as a two's complement int256.
+ * Operations mutate and return {@code this} so that hot loops never allocate.
+ */
+public final class Uint256 implements Comparable<Uint256> {
+
+    private static final BigInteger MASK_64 = BigInteger.ONE.shiftLeft(64).subtract(BigInteger.ONE);
+
+    long w0, w1, w2, w3;
+
+    public Uint256() {
+    }
+
+    public Uint256(long unsignedValue) {
+        w0 = unsignedValue;
+    }
+
+    public Uint256(Uint256 other) {
+        set(other);
+    }
+
+    public static Uint256 of(BigInteger value) {
+        return new Uint256().set(value);
+    }
+
+    public static Uint256 of(String decimalOrHex) {
+        final BigInteger value = decimalOrHex.startsWith("0x")
+                ? new BigInteger(decimalOrHex.substring(2), 16)
+                : new BigInteger(decimalOrHex);
+        return of(value);
+    }
+
+    //
+    // Setters
+    //
+
+    public Uint256 set(Uint256 other) {
+        w0 = other.w0;
+        w1 = other.w1;
+        w2 = other.w2;
+        w3 = other.w3;
+        return this;
+    }
+
+    public Uint256 set(long w3, long w2, long w1, long w0) {
+        this.w0 = w0;
+        this.w1 = w1;
+        this.w2 = w2;
+        this.w3 = w3;
+        return this;
+    }
+
+    public Uint256 setUnsigned(long value) {
+        return set(0, 0, 0, value);
+    }
+
+    public Uint256 setSigned(long value) {
+        final long ext = value >> 63;
+        return set(ext, ext, ext, value);
+    }
+
+    public Uint256 setZero() {
+        return set(0, 0, 0, 0);
+    }
+
+    public Uint256 setMax() {
+        return set(-1L, -1L, -1L, -1L);
+    }
+
+    /** Accepts any BigInteger; negative values are stored as two's complement int256. */
+    public Uint256 set(BigInteger value) {
+        w0 = value.longValue();
+        w1 = value.shiftRight(64).longValue();
+        w2 = value.shiftRight(128).longValue();
+        w3 = value.shiftRight(192).longValue();
+        return this;
+    }
+
+    //
+    // Queries
+    //
+
+    public boolean isZero() {
+        return (w0 | w1 | w2 | w3) == 0;
+    }
+
+    public boolean isNegative() {
+        return w3 < 0;
+    }
+
+    public int signum() {
+        return isNegative() ? -1 : isZero() ? 0 : 1;
+    }
+
+    /** Number of significant bits of the unsigned value (0 for zero). */
+    public int bitLength() {
+        if (w3 != 0) return 256 - Long.numberOfLeadingZeros(w3);
+        if (w2 != 0) return 192 - Long.numberOfLeadingZeros(w2);
+        if (w1 != 0) return 128 - Long.numberOfLeadingZeros(w1);
+        return 64 - Long.numberOfLeadingZeros(w0);
+    }
+
+    /** True if the unsigned value is strictly below 2^bits. */
+    public boolean fitsIn(int bits) {
+        return bitLength() <= bits;
+    }
+
+    public long word(int i) {
+        switch (i) {
+            case 0: return w0;
+            case 1: return w1;
+            case 2: return w2;
+            case 3: return w3;
+            default: throw new IndexOutOfBoundsException(i);
+        }
+    }
+
+    public Uint256 setWord(int i, long value) {
+        switch (i) {
+            case 0: w0 = value; break;
+            case 1: w1 = value; break;
+            case 2: w2 = value; break;
+            case 3: w3 = value; break;
+            default: throw new IndexOutOfBoundsException(i);
+        }
+        return this;
+    }
+
+    /** Lowest 64 bits, for values already known to fit. */
+    public long longValue() {
+        return w0;
+    }
+
+    @Override
+    public int compareTo(Uint256 o) {
+        if (w3 != o.w3) return Long.compareUnsigned(w3, o.w3);
+        if (w2 != o.w2) return Long.compareUnsigned(w2, o.w2);
+        if (w1 != o.w1) return Long.compareUnsigned(w1, o.w1);
+        return Long.compareUnsigned(w0, o.w0);
+    }
+
+    public int compareSigned(Uint256 o) {
+        if (w3 != o.w3) return Long.compare(w3, o.w3);
+        if (w2 != o.w2) return Long.compareUnsigned(w2, o.w2);
+        if (w1 != o.w1) return Long.compareUnsigned(w1, o.w1);
+        return Long.compareUnsigned(w0, o.w0);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof Uint256)) return false;
+        final Uint256 u = (Uint256) o;
+        return w0 == u.w0 && w1 == u.w1 && w2 == u.w2 && w3 == u.w3;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(w0 ^ w1 ^ w2 ^ w3);
+    }
+
+    //
+    // Arithmetic (wrapping)
+    //
+
+    /** this += o, returns true on unsigned overflow. */
+    public boolean addOverflows(Uint256 o) {
+        final long r0 = w0 + o.w0;
+        long c = Long.compareUnsigned(r0, w0) < 0 ? 1 : 0;
+        final long r1 = w1 + o.w1 + c;
+        c = c == 0 ? (Long.compareUnsigned(r1, w1) < 0 ? 1 : 0) : (Long.compareUnsigned(r1, w1) <= 0 ? 1 : 0);
+        final long r2 = w2 + o.w2 + c;
+        c = c == 0 ? (Long.compareUnsigned(r2, w2) < 0 ? 1 : 0) : (Long.compareUnsigned(r2, w2) <= 0 ? 1 : 0);
+        final long r3 = w3 + o.w3 + c;
+        c = c == 0 ? (Long.compareUnsigned(r3, w3) < 0 ? 1 : 0) : (Long.compareUnsigned(r3, w3) <= 0 ? 1 : 0);
+        set(r3, r2, r1, r0);
+        return c != 0;
+    }
+
+    public Uint256 add(Uint256 o) {
+        addOverflows(o);
+        return this;
+    }
+
+    public Uint256 addSmall(long unsignedValue) {
+        final long r0 = w0 + unsignedValue;
+        if (Long.compareUnsigned(r0, w0) < 0) {
+            if (++w1 == 0 && ++w2 == 0) {
+                ++w3;
+            }
+        }
+        w0 = r0;
+        return this;
+    }
+
+    /** this -= o, returns true on unsigned underflow. */
+    public boolean subUnderflows(Uint256 o) {
+        final long r0 = w0 - o.w0;
+        long b = Long.compareUnsigned(w0, o.w0) < 0 ? 1 : 0;
+        final long r1 = w1 - o.w1 - b;
+        b = b == 0 ? (Long.compareUnsigned(w1, o.w1) < 0 ? 1 : 0) : (Long.compareUnsigned(w1, o.w1) <= 0 ? 1 : 0);
+        final long r2 = w2 - o.w2 - b;
+        b = b == 0 ? (Long.compareUnsigned(w2, o.w2) < 0 ? 1 : 0) : (Long.compareUnsigned(w2, o.w2) <= 0 ? 1 : 0);
+        final long r3 = w3 - o.w3 - b;
+        b = b == 0 ? (Long.compareUnsigned(w3, o.w3) < 0 ? 1 : 0) : (Long.compareUnsigned(w3, o.w3) <= 0 ? 1 : 0);
+        set(r3, r2, r1, r0);
+        return b != 0;
+    }
+
+    public Uint256 sub(Uint256 o) {
+        subUnderflows(o);
+        return this;
+    }
+
+    public Uint256 negate() {
+        w0 = ~w0;
+        w1 = ~w1;
+        w2 = ~w2;
+        w3 = ~w3;
+        return addSmall(1);
+    }
+
+    /** this = this * o mod 2^256 */
+    public Uint256 mul(Uint256 o) {
+        final long a0 = w0, a1 = w1, a2 = w2, a3 = w3;
+        final long b0 = o.w0, b1 = o.w1, b2 = o.w2, b3 = o.w3;
+        // Schoolbook on 64-bit limbs, unrolled, keeping the low four limbs
+        long p, h, s, c;
+        long r0 = 0, r1 = 0, r2 = 0, r3 = 0;
+        // row 0
+        c = 0;
+        p = a0 * b0; h = unsignedMultiplyHigh(a0, b0);
+        s = r0 + p; h += Long.compareUnsigned(s, p) < 0 ? 1 : 0;
+        r0 = s + c; c = h + (Long.compareUnsigned(r0, c) < 0 ? 1 : 0);
+        p = a0 * b1; h = unsignedMultiplyHigh(a0, b1);
+        s = r1 + p; h += Long.compareUnsigned(s, p) < 0 ? 1 : 0;
+        r1 = s + c; c = h + (Long.compareUnsigned(r1, c) < 0 ? 1 : 0);
+        p = a0 * b2; h = unsignedMultiplyHigh(a0, b2);
+        s = r2 + p; h += Long.compareUnsigned(s, p) < 0 ? 1 : 0;
+        r2 = s + c; c = h + (Long.compareUnsigned(r2, c) < 0 ? 1 : 0);
+        r3 += a0 * b3 + c;
+        // row 1
+        c = 0;
+        p = a1 * b0; h = unsignedMultiplyHigh(a1, b0);
+        s = r1 + p; h += Long.compareUnsigned(s, p) < 0 ? 1 : 0;
+        r1 = s + c; c = h + (Long.compareUnsigned(r1, c) < 0 ? 1 : 0);
+        p = a1 * b1; h = unsignedMultiplyHigh(a1, b1);
+        s = r2 + p; h += Long.compareUnsigned(s, p) < 0 ? 1 : 0;
+        r2 = s + c; c = h + (Long.compareUnsigned(r2, c) < 0 ? 1 : 0);
+        r3 += a1 * b2 + c;
+        // row 2
+        c = 0;
+        p = a2 * b0; h = unsignedMultiplyHigh(a2, b0);
+        s = r2 + p; h += Long.compareUnsigned(s, p) < 0 ? 1 : 0;
+        r2 = s + c; c = h + (Long.compareUnsigned(r2, c) < 0 ? 1 : 0);
+        r3 += a2 * b1 + c;
+        // row 3
+        r3 += a3 * b0;
+        return set(r3, r2, r1, r0);
+    }
+
+    /**
+     * [hi lo] = a * b as a full 512-bit product.
+     * Operands may alias the outputs.
+     */
+    public static void mulFull(Uint256 a, Uint256 b, Uint256 lo, Uint256 hi) {
+        final long a0 = a.w0, a1 = a.w1, a2 = a.w2, a3 = a.w3;
+        final long b0 = b.w0, b1 = b.w1, b2 = b.w2, b3 = b.w3;
+        // Schoolbook on 64-bit limbs, unrolled
+        long p, h, s, c;
+        long r0 = 0, r1 = 0, r2 = 0, r3 = 0, r4 = 0, r5 = 0, r6 = 0, r7 = 0;
+        // row 0
+        c = 0;
+        p = a0 * b0; h = unsignedMultiplyHigh(a0, b0);
+        s = r0 + p; h += Long.compareUnsigned(s, p) < 0 ? 1 : 0;
+        r0 = s + c; c = h + (Long.compareUnsigned(r0, c) < 0 ? 1 : 0);
+        p = a0 * b1; h = unsignedMultiplyHigh(a0, b1);
+        s = r1 + p; h += Long.compareUnsigned(s, p) < 0 ? 1 : 0;
+        r1 = s + c; c = h + (Long.compareUnsigned(r1, c) < 0 ? 1 : 0);
+        p = a0 * b2; h = unsignedMultiplyHigh(a0, b2);
+        s = r2 + p; h += Long.compareUnsigned(s, p) < 0 ? 1 : 0;
+        r2 = s + c; c = h + (Long.compareUnsigned(r2, c) < 0 ? 1 : 0);
+        p = a0 * b3; h = unsignedMultiplyHigh(a0, b3);
+        s = r3 + p; h += Long.compareUnsigned(s, p) < 0 ? 1 : 0;
+        r3 = s + c; c = h + (Long.compareUnsigned(r3, c) < 0 ? 1 : 0);
+        r4 = c;
+        // row 1
+        c = 0;
+        p = a1 * b0; h = unsignedMultiplyHigh(a1, b0);
+        s = r1 + p; h += Long.compareUnsigned(s, p) < 0 ? 1 : 0;
+        r1 = s + c; c = h + (Long.compareUnsigned(r1, c) < 0 ? 1 : 0);
+        p = a1 * b1; h = unsignedMultiplyHigh(a1, b1);
+        s = r2 + p; h += Long.compareUnsigned(s, p) < 0 ? 1 : 0;
+        r2 = s + c; c = h + (Long.compareUnsigned(r2, c) < 0 ? 1 : 0);
+        p = a1 * b2; h = unsignedMultiplyHigh(a1, b2);
+        s = r3 + p; h += Long.compareUnsigned(s, p) < 0 ? 1 : 0;
+        r3 = s + c; c = h + (Long.compareUnsigned(r3, c) < 0 ? 1 : 0);
+        p = a1 * b3; h = unsignedMultiplyHigh(a1, b3);
+        s = r4 + p; h += Long.compareUnsigned(s, p) < 0 ? 1 : 0;
+        r4 = s + c; c = h + (Long.compareUnsigned(r4, c) < 0 ? 1 : 0);
+        r5 = c;
+        // row 2
+        c = 0;
+        p = a2 * b0; h = unsignedMultiplyHigh(a2, b0);
+        s = r2 + p; h += Long.compareUnsigned(s, p) < 0 ? 1 : 0;
+        r2 = s + c; c = h + (Long.compareUnsigned(r2, c) < 0 ? 1 : 0);
+        p = a2 * b1; h = unsignedMultiplyHigh(a2, b1);
+        s = r3 + p; h += Long.compareUnsigned(s, p) < 0 ? 1 : 0;
+        r3 = s + c; c = h + (Long.compareUnsigned(r3, c) < 0 ? 1 : 0);
+        p = a2 * b2; h = unsignedMultiplyHigh(a2, b2);
+        s = r4 + p; h += Long.compareUnsigned(s, p) < 0 ? 1 : 0;
+        r4 = s + c; c = h + (Long.compareUnsigned(r4, c) < 0 ? 1 : 0);
+        p = a2 * b3; h = unsignedMultiplyHigh(a2, b3);
+        s = r5 + p; h += Long.compareUnsigned(s, p) < 0 ? 1 : 0;
+        r5 = s + c; c = h + (Long.compareUnsigned(r5, c) < 0 ? 1 : 0);
+        r6 = c;
+        // row 3
+        c = 0;
+        p = a3 * b0; h = unsignedMultiplyHigh(a3, b0);
+        s = r3 + p; h += Long.compareUnsigned(s, p) < 0 ? 1 : 0;
+        r3 = s + c; c = h + (Long.compareUnsigned(r3, c) < 0 ? 1 : 0);
+        p = a3 * b1; h = unsignedMultiplyHigh(a3, b1);
+        s = r4 + p; h += Long.compareUnsigned(s, p) < 0 ? 1 : 0;
+        r4 = s + c; c = h + (Long.compareUnsigned(r4, c) < 0 ? 1 : 0);
+        p = a3 * b2; h = unsignedMultiplyHigh(a3, b2);
+        s = r5 + p; h += Long.compareUnsigned(s, p) < 0 ? 1 : 0;
+        r5 = s + c; c = h + (Long.compareUnsigned(r5, c) < 0 ? 1 : 0);
+        p = a3 * b3; h = unsignedMultiplyHigh(a3, b3);
+        s = r6 + p; h += Long.compareUnsigned(s, p) < 0 ? 1 : 0;
+        r6 = s + c; c = h + (Long.compareUnsigned(r6, c) < 0 ? 1 : 0);
+        r7 = c;
+        lo.set(r3, r2, r1, r0);
+        hi.set(r7, r6, r5, r4);
+    }
+
+    public Uint256 shiftLeft(int n) {
+        if (n <= 0) return this;
+        if (n >= 256) return setZero();
+        final int words = n >>> 6;
+        final int bits = n & 63;
+        long a0 = w0, a1 = w1, a2 = w2, a3 = w3;
+        for (int i = 0; i < words; i++) {
+            a3 = a2; a2 = a1; a1 = a0; a0 = 0;
+        }
+        if (bits != 0) {
+            a3 = (a3 << bits) | (a2 >>> (64 - bits));
+            a2 = (a2 << bits) | (a1 >>> (64 - bits));
+            a1 = (a1 << bits) | (a0 >>> (64 - bits));
+            a0 = a0 << bits;
+        }
+        return set(a3, a2, a1, a0);
+    }
+
+    public Uint256 shiftRight(int n) {
+        if (n <= 0) return this;
+        if (n >= 256) return setZero();
+        final int words = n >>> 6;
+        final int bits = n & 63;
+        long a0 = w0, a1 = w1, a2 = w2, a3 = w3;
+        for (int i = 0; i < words; i++) {
+            a0 = a1; a1 = a2; a2 = a3; a3 = 0;
+        }
+        if (bits != 0) {
+            a0 = (a0 >>> bits) | (a1 << (64 - bits));
+            a1 = (a1 >>> bits) | (a2 << (64 - bits));
+            a2 = (a2 >>> bits) | (a3 << (64 - bits));
+            a3 = a3 >>> bits;
+        }
+        return set(a3, a2, a1, a0);
+    }
+
+    /** EVM SAR. */
+    public Uint256 shiftRightArithmetic(int n) {
+        final boolean negative = isNegative();
+        if (!negative) return shiftRight(n);
+        if (n >= 256) return setMax();
+        not().shiftRight(n);
+        return not();
+    }
+
+    public Uint256 not() {
+        w0 = ~w0;
+        w1 = ~w1;
+        w2 = ~w2;
+        w3 = ~w3;
+        return this;
+    }
+
+    public Uint256 and(Uint256 o) {
+        w0 &= o.w0;
+        w1 &= o.w1;
+        w2 &= o.w2;
+        w3 &= o.w3;
+        return this;
+    }
+
+    public Uint256 or(Uint256 o) {
+        w0 |= o.w0;
+        w1 |= o.w1;
+        w2 |= o.w2;
+        w3 |= o.w3;
+        return this;
+    }
+
+    public Uint256 xor(Uint256 o) {
+        w0 ^= o.w0;
+        w1 ^= o.w1;
+        w2 ^= o.w2;
+        w3 ^= o.w3;
+        return this;
+    }
+
+    //
+    // Conversions
+    //
+
+    public BigInteger toBigInteger() {
+        BigInteger result = BigInteger.valueOf(w3).and(MASK_64);
+        result = result.shiftLeft(64).or(BigInteger.valueOf(w2).and(MASK_64));
+        result = result.shiftLeft(64).or(BigInteger.valueOf(w1).and(MASK_64));
+        result = result.shiftLeft(64).or(BigInteger.valueOf(w0).and(MASK_64));
+        return result;
+    }
+
+    public BigInteger toSignedBigInteger() {
+        final BigInteger result = toBigInteger();
+        return isNegative() ? result.subtract(BigInteger.ONE.shiftLeft(256)) : result;
+    }
+
+    @Override
+    public String toString() {
+        return toBigInteger().toString();
+    }
+
+    //
+    // Private
+    //
+
+    static long unsignedMultiplyHigh(long a, long b) {
+        return Math.multiplyHigh(a, b) + ((a >> 63) & b) + ((b >> 63) & a);
+    }
+}
@@ -0,0 +1,74 @@
+package common;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BytecodeReportTest {
+
+    private static final Path ROOT = Path.of(System.getProperty("user.dir"), "src", "main", "java");
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void helloWorld() throws Exception {
+        final Path binFile = ROOT.resolve("hello_world/artifacts/HelloWorld.bin");
+        final BytecodeReport.Analysis a = BytecodeReport.analyze(binFile, ROOT);
+        assertEquals("hello_world/HelloWorld", a.name);
+        assertEquals(1656, a.runtimeSize);
+        assertEquals(Files.readString(binFile).trim().length() / 2 - 1656, a.initSize);
+        assertEquals(53, a.metadataSize);
+        assertEquals("0.8.17", a.solc);
+        assertTrue(a.metadataHash.startsWith("ipfs:1220"), a.metadataHash);
+        assertEquals(List.of(0x3d7403a3, 0xe21f37ce), List.copyOf(a.selectors.keySet())); // update(string), message()
+        assertEquals(0, a.embeddedSize);
+        assertEquals(List.of(), a.warnings);
+    }
+
+    @Test
+    void factoryEmbedsThePoolCreationCode() throws Exception {
+        final BytecodeReport.Analysis a = BytecodeReport.analyze(ROOT.resolve("uniswap_v3/artifacts/UniswapV3Factory.bin"), ROOT);
+        final String pool = Files.readString(ROOT.resolve("uniswap_v3/artifacts/UniswapV3Pool.bin")).trim();
+        assertEquals(pool.length() / 2, a.embeddedSize);
+        assertEquals("0.7.6", a.solc);
+        assertTrue(a.runtimeSize > BytecodeReport.MAX_RUNTIME_SIZE);
+        assertTrue(a.warnings.contains("runtime over EIP-170"), a.warnings.toString());
+    }
+
+    @Test
+    void emptyArtifact() throws Exception {
+        assertNull(BytecodeReport.analyze(write("Empty", ""), dir));
+    }
+
+    @Test
+    void malformedMetadata() throws Exception {
+        // PUSH1 13 PUSH1 12 PUSH1 0 CODECOPY PUSH1 13 PUSH1 0 RETURN, then a runtime (STOP) whose trailer
+        // { "ipfs": bytes(34) } holds 2 bytes only
+        final String hex = "600d600c6000396" + "00d6000f3" + "00" + "a1" + "6469706673" + "5822" + "1220" + "000a";
+        final BytecodeReport.Analysis a = BytecodeReport.analyze(write("Malformed", hex), dir);
+        assertEquals(13, a.runtimeSize);
+        assertEquals(12, a.metadataSize);
+        assertEquals("", a.metadataHash);
+        assertEquals(List.of("malformed metadata"), a.warnings);
+    }
+
+    //
+    // Private
+    //
+
+    private Path write(String contractName, String hex) throws Exception {
+        final Path result = dir.resolve("test/artifacts/" + contractName + ".bin");
+        Files.createDirectories(result.getParent());
+        Files.writeString(result, hex, StandardCharsets.US_ASCII);
+        return result;
+    }
+}
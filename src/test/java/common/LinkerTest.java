@@ -0,0 +1,61 @@
+package common;
+
+import nayms.Nayms;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LinkerTest {
+
+    // keccak256("src/diamonds/nayms/libs/LibHelpers.sol:LibHelpers"), first 34 hex digits
+    private static final String LIB_HELPERS = "054f00815df1881fe5042e1861c40eafc7";
+    private static final String PLACEHOLDER = "__$" + LIB_HELPERS + "$__";
+    private static final String ADDRESS = "00000000000000000000000000000000000004d2";
+
+    @Test
+    void indexLibraries() throws Exception {
+        final Map<String, String> libraries = Linker.indexLibraries(Nayms.class);
+        assertEquals("LibHelpers", libraries.get(LIB_HELPERS));
+        assertTrue(libraries.containsValue("LibDiamond"));
+    }
+
+    @Test
+    void patchesEveryPlaceholder() throws Exception {
+        final String byteCode = "6080604052" + "73" + PLACEHOLDER + "3014" + "73" + PLACEHOLDER + "f3";
+        final List<String> resolved = new ArrayList<>();
+        final String linked = Linker.link(byteCode, Nayms.class, (contractName, klass) -> {
+            resolved.add(contractName);
+            return CompletableFuture.completedFuture(ADDRESS);
+        });
+        assertEquals("6080604052" + "73" + ADDRESS + "3014" + "73" + ADDRESS + "f3", linked);
+        assertEquals(List.of("LibHelpers"), resolved); // once per library
+    }
+
+    @Test
+    void leavesByteCodeWithoutPlaceholders() throws Exception {
+        assertEquals("6080604052", Linker.link("6080604052", Nayms.class, (contractName, klass) -> {
+            throw new AssertionError("unexpected resolution of " + contractName);
+        }));
+    }
+
+    @Test
+    void rejectsMalformedAndUnknownPlaceholders() {
+        final Linker.Resolver resolver = (contractName, klass) -> CompletableFuture.completedFuture(ADDRESS);
+
+        final IllegalStateException truncated = assertThrows(IllegalStateException.class,
+                () -> Linker.link("6080" + PLACEHOLDER.substring(0, 30) + "f3", Nayms.class, resolver));
+        assertEquals("Malformed library placeholder at offset 4", truncated.getMessage());
+
+        final String unknown = "__$" + "0".repeat(34) + "$__";
+        final IllegalStateException missing = assertThrows(IllegalStateException.class,
+                () -> Linker.link("6080" + unknown, Nayms.class, resolver));
+        assertEquals("No artifact found for library placeholder " + unknown, missing.getMessage());
+    }
+}
@@ -0,0 +1,107 @@
+package common;
+
+import com.hedera.hashgraph.sdk.TransactionReceipt;
+import com.hedera.hashgraph.sdk.proto.AccountID;
+import com.hedera.hashgraph.sdk.proto.ContractID;
+import com.hedera.hashgraph.sdk.proto.FileID;
+import com.hedera.hashgraph.sdk.proto.ResponseCodeEnum;
+import com.hedera.hashgraph.sdk.proto.TokenID;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RunJournalTest {
+
+    private static final RunJournal.Step NOT_SENT = transactionId -> {
+        throw new AssertionError("a completed step was sent again");
+    };
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void newRun() throws Exception {
+        final Path path = dir.resolve("run-r1.journal");
+        new RunJournal("r1", path, "testnet");
+        assertEquals(List.of("RUN\tr1\ttestnet"), Files.readAllLines(path));
+    }
+
+    @Test
+    void replaysCompletedSteps() throws Exception {
+        final Path path = journal(
+                "RUN\tr1\ttestnet",
+                "BEGIN\tupload:A#1\t0.0.2@1700000000.000000001",
+                "DONE\tupload:A#1\t0.0.10",
+                "BEGIN\tcontract:A#1\t0.0.2@1700000001.000000001",
+                "FAIL\tcontract:A#1\tINSUFFICIENT_PAYER_BALANCE",
+                "BEGIN\tupload:A#2\t0.0.2@1700000002.000000001",
+                "DONE\tupload:A#2\t0.0.11",
+                "BEGIN\tcontract:A#2\t0.0.2@1700000003.000000001",
+                "DONE\tcontract:A#2\t0.0.12");
+        final RunJournal journal = new RunJournal("r1", path, "testnet");
+
+        // The second attempt of the run resumes at the same step numbers
+        assertEquals("0.0.10", journal.run("upload", "A", NOT_SENT));
+        assertEquals("contract:A#1", journal.nextKey("contract", "A")); // failed: would be sent again
+        assertEquals("0.0.11", journal.run("upload", "A", NOT_SENT));
+        assertEquals("0.0.12", journal.run("contract", "A", NOT_SENT));
+    }
+
+    @Test
+    void rejectsAnotherNetwork() throws Exception {
+        final Path path = journal("RUN\tr1\tmainnet");
+        final IllegalStateException e = assertThrows(IllegalStateException.class, () -> new RunJournal("r1", path, "testnet"));
+        assertEquals("Run r1 was started on mainnet, not testnet", e.getMessage());
+    }
+
+    @Test
+    void rejectsUnexpectedLines() throws Exception {
+        final Path path = journal("RUN\tr1\ttestnet", "SENT\tupload:A#1\t0.0.10");
+        assertThrows(IllegalStateException.class, () -> new RunJournal("r1", path, "testnet"));
+    }
+
+    @Test
+    void nextKey() throws Exception {
+        final RunJournal journal = new RunJournal("r1", dir.resolve("run-r1.journal"), "testnet");
+        assertEquals("upload:A#1", journal.nextKey("upload", "A"));
+        assertEquals("contract:A#1", journal.nextKey("contract", "A"));
+        assertEquals("upload:B#1", journal.nextKey("upload", "B"));
+        assertEquals("upload:A#2", journal.nextKey("upload", "A"));
+        assertEquals("execute:A.0#1", journal.nextKey("execute", "A.0"));
+    }
+
+    @Test
+    void resultOf() throws Exception {
+        assertEquals("0.0.5", RunJournal.resultOf("token", receipt(com.hedera.hashgraph.sdk.proto.TransactionReceipt.newBuilder()
+                .setStatus(ResponseCodeEnum.SUCCESS).setTokenID(TokenID.newBuilder().setTokenNum(5)))));
+        assertEquals("0.0.6", RunJournal.resultOf("account", receipt(com.hedera.hashgraph.sdk.proto.TransactionReceipt.newBuilder()
+                .setStatus(ResponseCodeEnum.SUCCESS).setAccountID(AccountID.newBuilder().setAccountNum(6)))));
+        assertEquals("0.0.7", RunJournal.resultOf("upload", receipt(com.hedera.hashgraph.sdk.proto.TransactionReceipt.newBuilder()
+                .setStatus(ResponseCodeEnum.SUCCESS).setFileID(FileID.newBuilder().setFileNum(7)))));
+        assertEquals("0.0.8", RunJournal.resultOf("contract", receipt(com.hedera.hashgraph.sdk.proto.TransactionReceipt.newBuilder()
+                .setStatus(ResponseCodeEnum.SUCCESS).setContractID(ContractID.newBuilder().setContractNum(8)))));
+        assertEquals("CONTRACT_REVERT_EXECUTED", RunJournal.resultOf("execute", receipt(com.hedera.hashgraph.sdk.proto.TransactionReceipt.newBuilder()
+                .setStatus(ResponseCodeEnum.CONTRACT_REVERT_EXECUTED))));
+    }
+
+    //
+    // Private
+    //
+
+    private Path journal(String... lines) throws Exception {
+        final Path result = dir.resolve("run-r1.journal");
+        Files.writeString(result, String.join("\n", lines) + "\n", StandardCharsets.UTF_8);
+        return result;
+    }
+
+    private static TransactionReceipt receipt(com.hedera.hashgraph.sdk.proto.TransactionReceipt.Builder builder) throws Exception {
+        return TransactionReceipt.fromBytes(builder.build().toByteArray());
+    }
+}
@@ -0,0 +1,84 @@
+package nayms;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DiamondTest {
+
+    private static final int OWNER = 0x8da5cb5b; // owner()
+    private static final int TRANSFER_OWNERSHIP = 0xf2fde38b; // transferOwnership(address)
+
+    @Test
+    void onlyOwnershipFacetIsLeftToTheCut() throws Exception {
+        assertEquals(List.of("DiamondCutFacet", "DiamondLoupeFacet", "NaymsOwnershipFacet"),
+                Diamond.constructorFacets(Diamond.FACETS));
+    }
+
+    @Test
+    void readSelectors() throws Exception {
+        assertEquals(Map.of(OWNER, "owner()", TRANSFER_OWNERSHIP, "transferOwnership(address)"),
+                Diamond.readSelectors("OwnershipFacet"));
+        assertEquals(Map.of(0x1f931c1c, "diamondCut((address,uint8,bytes4[])[],address,bytes)"),
+                Diamond.readSelectors("DiamondCutFacet"));
+    }
+
+    @Test
+    void checkCollisions() throws Exception {
+        final IllegalStateException e = assertThrows(IllegalStateException.class, () -> Diamond.checkCollisions(Map.of(
+                "NaymsOwnershipFacet", Diamond.readSelectors("NaymsOwnershipFacet"),
+                "OwnershipFacet", Diamond.readSelectors("OwnershipFacet"))));
+        assertTrue(e.getMessage().contains("0x8da5cb5b owner()"), e.getMessage());
+        assertTrue(e.getMessage().contains("0xf2fde38b transferOwnership(address)"), e.getMessage());
+
+        assertDoesNotThrow(() -> Diamond.checkCollisions(Map.of(
+                "DiamondCutFacet", Diamond.readSelectors("DiamondCutFacet"),
+                "DiamondLoupeFacet", Diamond.readSelectors("DiamondLoupeFacet"),
+                "OwnershipFacet", Diamond.readSelectors("OwnershipFacet"))));
+    }
+
+    @Test
+    void encodeDiamondCut() {
+        final Diamond.FacetCut replace = new Diamond.FacetCut("00000000000000000000000000000000000004d2", 1);
+        replace.selectors.add(OWNER);
+        replace.selectors.add(TRANSFER_OWNERSHIP);
+        final Diamond.FacetCut add = new Diamond.FacetCut("ff000000000000000000000000000000000000ee", 0);
+        add.selectors.add(0xcdffacc6);
+
+        final String expected = "1f931c1c"
+                // _diamondCut offset, _init, _calldata offset
+                + word("60") + word("0") + word("220")
+                // _diamondCut: length, offsets of the two tuples
+                + word("2") + word("40") + word("100")
+                // (address, action, bytes4[] offset, length, selectors)
+                + word("4d2") + word("1") + word("60") + word("2")
+                + "8da5cb5b" + "0".repeat(56) + "f2fde38b" + "0".repeat(56)
+                + word("ff000000000000000000000000000000000000ee") + word("0") + word("60") + word("1")
+                + "cdffacc6" + "0".repeat(56)
+                // _calldata: empty
+                + word("0");
+        assertEquals(expected, hex(Diamond.encodeDiamondCut(List.of(replace, add))));
+    }
+
+    //
+    // Private
+    //
+
+    private static String word(String hex) {
+        return "0".repeat(64 - hex.length()) + hex;
+    }
+
+    private static String hex(byte[] bytes) {
+        final StringBuilder result = new StringBuilder();
+        for (byte b : bytes) {
+            result.append(String.format("%02x", b));
+        }
+        return result.toString();
+    }
+}
@@ -0,0 +1,58 @@
+package uniswap_v3.fuzz;
+
+import org.junit.jupiter.api.Test;
+import uniswap_v3.quoter.Uint256;
+
+import java.math.BigInteger;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Fuzzes a hand-assembled contract with known failures and checks that they are found and shrunk:
+ * <pre>
+ * function set(uint256 x)                        { value = x; }
+ * function check(uint256 x) pure                 { assert(x < 2**128); }
+ * function echidna_below1000() view returns bool { return value < 1000; }
+ * </pre>
+ */
+class EchidnaFuzzerTest {
+
+    private static final String BIN = "605d80600b6000396000f3"
+            + "60003560e01c806360fe47b11460285780635f72f4501460305780630555951214604d57600080fd"
+            + "5b600435600055005b70010000000000000000000000000000000060043510604b57fe5b00"
+            + "5b6103e86000541060005260206000f3";
+
+    private static final String META = "{\"output\":{\"abi\":["
+            + "{\"type\":\"function\",\"name\":\"set\",\"stateMutability\":\"nonpayable\","
+            + "\"inputs\":[{\"name\":\"x\",\"type\":\"uint256\"}],\"outputs\":[]},"
+            + "{\"type\":\"function\",\"name\":\"check\",\"stateMutability\":\"pure\","
+            + "\"inputs\":[{\"name\":\"x\",\"type\":\"uint256\"}],\"outputs\":[]},"
+            + "{\"type\":\"function\",\"name\":\"echidna_below1000\",\"stateMutability\":\"view\","
+            + "\"inputs\":[],\"outputs\":[{\"name\":\"\",\"type\":\"bool\"}]}]}}";
+
+    @Test
+    void failuresAreFoundAndShrunk() throws Exception {
+        final EchidnaFuzzer.Target target = EchidnaFuzzer.Target.parse("Known", BIN, META);
+        assertEquals(List.of("set", "check", "echidna_below1000"), target.tests);
+        assertEquals(1, target.properties.size());
+
+        final Map<String, List<EchidnaFuzzer.Tx>> failures = EchidnaFuzzer.run(target, 2, 2, 42, 10);
+        assertFalse(failures.containsKey("set"));
+
+        // Assertion failure: the smallest failing argument
+        final List<EchidnaFuzzer.Tx> check = failures.get("check");
+        assertEquals(1, check.size());
+        assertEquals("check", check.get(0).function.name);
+        assertEquals(BigInteger.ONE.shiftLeft(128), check.get(0).args[0].toBigInteger());
+
+        // Property failure: a single set(), down to the boundary
+        final List<EchidnaFuzzer.Tx> property = failures.get("echidna_below1000");
+        assertEquals(1, property.size());
+        assertEquals("set", property.get(0).function.name);
+        assertEquals(new Uint256(1000), property.get(0).args[0]);
+        assertEquals(0, property.get(0).delay);
+    }
+}
@@ -0,0 +1,94 @@
+package uniswap_v3.fuzz;
+
+import org.junit.jupiter.api.Test;
+import uniswap_v3.quoter.Uint256;
+
+import java.math.BigInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * Opcode-level checks of the interpreter on hand-assembled contracts.
+ * Init code is "PUSH1 len DUP1 PUSH1 0x0b PUSH1 0 CODECOPY PUSH1 0 RETURN" followed by the runtime code.
+ */
+class EvmTest {
+
+    private static final Uint256 SENDER = Uint256.of("0x10000");
+    private static final byte[] NO_INPUT = new byte[0];
+
+    private final Evm evm = new Evm();
+
+    @Test
+    void calldataloadPastTheEndIsZeroPadded() {
+        // PUSH4 0x7fffffff CALLDATALOAD PUSH1 0 MSTORE PUSH1 32 PUSH1 0 RETURN
+        final Uint256 farOffset = deploy("637fffffff3560005260206000f3");
+        assertEquals(Evm.SUCCESS, evm.call(SENDER, farOffset, new byte[] { 1, 2, 3, 4 }));
+        assertArrayEquals(new byte[32], evm.output());
+
+        // PUSH1 2 CALLDATALOAD PUSH1 0 MSTORE PUSH1 32 PUSH1 0 RETURN
+        final Uint256 partial = deploy("60023560005260206000f3");
+        assertEquals(Evm.SUCCESS, evm.call(SENDER, partial, new byte[] { 1, 2, 3, 4 }));
+        final byte[] expected = new byte[32];
+        expected[0] = 3;
+        expected[1] = 4;
+        assertArrayEquals(expected, evm.output());
+    }
+
+    @Test
+    void arithmeticWrapsAndDivisionByZeroIsZero() {
+        // ((2^256 - 1 + 2) + 7 / 0) - 3
+        final Uint256 contract = deploy("6003600060070460027fffffffffffffffffffffffffffffffffffffffffffffffffffffffffffffffff01010360005260206000f3");
+        assertEquals(Evm.SUCCESS, evm.call(SENDER, contract, NO_INPUT));
+        assertEquals(BigInteger.ONE.shiftLeft(256).subtract(BigInteger.TWO), word(evm.output()));
+    }
+
+    @Test
+    void storageIsJournaled() {
+        // With call data: SSTORE(0, CALLDATALOAD(0)); without: return SLOAD(0)
+        final Uint256 contract = deploy("36600f5760005460005260206000f35b60003560005500");
+        assertEquals(Evm.SUCCESS, evm.call(SENDER, contract, input(7)));
+        final int mark = evm.mark();
+        assertEquals(Evm.SUCCESS, evm.call(SENDER, contract, input(9)));
+        assertEquals(Evm.SUCCESS, evm.call(SENDER, contract, NO_INPUT));
+        assertEquals(BigInteger.valueOf(9), word(evm.output()));
+
+        evm.rollback(mark);
+        assertEquals(Evm.SUCCESS, evm.call(SENDER, contract, NO_INPUT));
+        assertEquals(BigInteger.valueOf(7), word(evm.output()));
+    }
+
+    @Test
+    void exceptionalHalts() {
+        assertEquals(Evm.INVALID, evm.call(SENDER, deploy("fe"), NO_INPUT));
+        // PUSH1 3 JUMP, to a byte that is not a JUMPDEST
+        assertEquals(Evm.HALT, evm.call(SENDER, deploy("600356"), NO_INPUT));
+    }
+
+    //
+    // Private
+    //
+
+    private Uint256 deploy(String runtimeHex) {
+        final String initHex = String.format("60%02x80600b6000396000f3", runtimeHex.length() / 2) + runtimeHex;
+        final byte[] initCode = new byte[initHex.length() / 2];
+        for (int i = 0; i < initCode.length; i++) {
+            initCode[i] = (byte) Integer.parseInt(initHex.substring(2 * i, 2 * i + 2), 16);
+        }
+        final Uint256 result = evm.create(SENDER, initCode);
+        assertNotNull(result);
+        return result;
+    }
+
+    private static byte[] input(long value) {
+        final byte[] result = new byte[32];
+        Evm.store(new Uint256(value), result, 0);
+        return result;
+    }
+
+    private static BigInteger word(byte[] output) {
+        assertEquals(32, output.length);
+        return new BigInteger(1, output);
+    }
+}
@@ -0,0 +1,132 @@
+package uniswap_v3.oracle;
+
+import org.junit.jupiter.api.Test;
+import uniswap_v3.quoter.Revert;
+import uniswap_v3.quoter.Uint256;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * observe() against a brute-force integration of the tick over the swap history.
+ */
+class ObservationStoreTest {
+
+    private static final BigInteger LIQUIDITY = BigInteger.valueOf(4);
+
+    @Test
+    void secondsAgoZeroOnTheLatestObservation() {
+        final History h = new History(5, 2);
+        assertEquals(0, observe(h.store, 5, 0));
+
+        h.swap(10, 7);
+        assertEquals(10, observe(h.store, 10, 0)); // written at 10: read as is
+        assertEquals(10 + 7 * 3, observe(h.store, 13, 0)); // transformed to 13 with the current tick
+    }
+
+    @Test
+    void interpolatesBetweenObservations() {
+        final History h = new History(5, -5);
+        h.store.onIncreaseObservationCardinalityNext(4);
+        h.swap(10, 1);
+        h.swap(20, 3);
+
+        final long[] tickCumulatives = new long[1];
+        final Uint256[] secondsPerLiquidity = new Uint256[] { new Uint256() };
+        h.store.observe(20, new int[] { 5 }, tickCumulatives, secondsPerLiquidity);
+        assertEquals(-5 * 5 + 5, tickCumulatives[0]);
+        // 10 seconds since initialization, at a liquidity of 4
+        assertEquals(BigInteger.TEN.shiftLeft(128).divide(LIQUIDITY), secondsPerLiquidity[0].toBigInteger());
+
+        for (int secondsAgo = 0; secondsAgo <= 15; secondsAgo++) {
+            assertEquals(h.tickCumulative(20 - secondsAgo), observe(h.store, 20, secondsAgo), "secondsAgo " + secondsAgo);
+        }
+    }
+
+    @Test
+    void ringBufferWrapsAround() {
+        final History h = new History(100, 0);
+        h.store.onIncreaseObservationCardinalityNext(3);
+        for (int i = 1; i <= 10; i++) {
+            h.swap(100 + 10 * i, i % 2 == 0 ? 50 : -70);
+        }
+        assertEquals(3, h.store.getCardinality());
+        assertEquals(10 % 3, h.store.getIndex());
+
+        // the three observations left were written at 180, 190 and 200
+        final long now = 205;
+        for (int secondsAgo = 0; secondsAgo <= now - 180; secondsAgo++) {
+            assertEquals(h.tickCumulative(now - secondsAgo), observe(h.store, now, secondsAgo), "secondsAgo " + secondsAgo);
+        }
+        final Revert old = assertThrows(Revert.class, () -> observe(h.store, now, (int) (now - 179)));
+        assertEquals("OLD", old.getMessage());
+    }
+
+    @Test
+    void blockTimestampsWrapAtUint32() {
+        final long start = (1L << 32) - 5;
+        final History h = new History(start, 30);
+        h.store.onIncreaseObservationCardinalityNext(5);
+        h.swap(start + 2, -40);
+        h.swap(start + 7, 11); // 2^32 + 2
+        h.swap(start + 9, -3);
+
+        final long now = start + 12;
+        for (int secondsAgo = 0; secondsAgo <= 12; secondsAgo++) {
+            assertEquals(h.tickCumulative(now - secondsAgo), observe(h.store, now, secondsAgo), "secondsAgo " + secondsAgo);
+        }
+        assertThrows(Revert.class, () -> observe(h.store, now, 13));
+    }
+
+    @Test
+    void olderThanTheOldestObservationReverts() {
+        final History h = new History(50, 1);
+        h.swap(60, 2);
+        final Revert old = assertThrows(Revert.class, () -> observe(h.store, 70, 21));
+        assertEquals("OLD", old.getMessage());
+        // with a cardinality of 1 only the latest observation (60) is kept
+        assertThrows(Revert.class, () -> observe(h.store, 70, 11));
+        assertEquals(h.tickCumulative(60), observe(h.store, 70, 10));
+    }
+
+    //
+    // Private
+    //
+
+    private static long observe(ObservationStore store, long time, int secondsAgo) {
+        final long[] result = new long[1];
+        store.observe(time, new int[] { secondsAgo }, result, null);
+        return result[0];
+    }
+
+    /** The store fed with pool events, and the tick history they describe */
+    private static final class History {
+        final ObservationStore store = new ObservationStore();
+        final List<long[]> ticks = new ArrayList<>(); // { since, tick }
+
+        History(long time, int tick) {
+            store.onInitialize(time, tick);
+            store.onModifyPosition(time, tick - 60, tick + 60, LIQUIDITY);
+            ticks.add(new long[] { time, tick });
+        }
+
+        void swap(long time, int tick) {
+            store.onSwap(time, LIQUIDITY, tick);
+            ticks.add(new long[] { time, tick });
+        }
+
+        /** Sum of tick * seconds from initialization to time */
+        long tickCumulative(long time) {
+            long result = 0;
+            for (int i = 0; i < ticks.size() && ticks.get(i)[0] < time; i++) {
+                final long end = i + 1 < ticks.size() ? Math.min(time, ticks.get(i + 1)[0]) : time;
+                result += ticks.get(i)[1] * (end - ticks.get(i)[0]);
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package uniswap_v3.quoter;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Cases of FullMath.spec.ts plus random inputs checked against BigInteger.
+ */
+class FullMathTest {
+
+    private static final BigInteger Q128 = BigInteger.ONE.shiftLeft(128);
+    private static final BigInteger MAX = BigInteger.ONE.shiftLeft(256).subtract(BigInteger.ONE);
+
+    private final FullMath fullMath = new FullMath();
+
+    @Test
+    void mulDivRevertsIfDenominatorIsZero() {
+        assertThrows(Revert.class, () -> mulDiv(Q128, BigInteger.valueOf(5), BigInteger.ZERO));
+        assertThrows(Revert.class, () -> mulDiv(Q128, Q128, BigInteger.ZERO));
+    }
+
+    @Test
+    void mulDivRevertsIfOutputOverflows() {
+        assertThrows(Revert.class, () -> mulDiv(Q128, Q128, BigInteger.ONE));
+        assertThrows(Revert.class, () -> mulDiv(MAX, MAX, MAX.subtract(BigInteger.ONE)));
+    }
+
+    @Test
+    void mulDivIsExact() {
+        assertEquals(MAX, mulDiv(MAX, MAX, MAX));
+        assertEquals(Q128.divide(BigInteger.valueOf(3)),
+                mulDiv(Q128, percent(Q128, 50), percent(Q128, 150)));
+        // phantom overflow: the product needs more than 256 bits
+        assertEquals(Q128.multiply(BigInteger.valueOf(4375)).divide(BigInteger.valueOf(1000)),
+                mulDiv(Q128, Q128.multiply(BigInteger.valueOf(35)), Q128.multiply(BigInteger.valueOf(8))));
+        assertEquals(Q128.divide(BigInteger.valueOf(3)),
+                mulDiv(Q128, Q128.multiply(BigInteger.valueOf(1000)), Q128.multiply(BigInteger.valueOf(3000))));
+    }
+
+    @Test
+    void mulDivRoundingUpRevertsIfOutputOverflows() {
+        assertThrows(Revert.class, () -> mulDivRoundingUp(Q128, Q128, BigInteger.ONE));
+        assertThrows(Revert.class, () -> mulDivRoundingUp(
+                new BigInteger("535006138814359"),
+                new BigInteger("432862656469423142931042426214547535783388063929571229938474969"),
+                BigInteger.TWO));
+        assertThrows(Revert.class, () -> mulDivRoundingUp(MAX, MAX, MAX.subtract(BigInteger.ONE)));
+    }
+
+    @Test
+    void mulDivRoundingUpIsExact() {
+        assertEquals(MAX, mulDivRoundingUp(MAX, MAX, MAX));
+        assertEquals(Q128.divide(BigInteger.valueOf(3)).add(BigInteger.ONE),
+                mulDivRoundingUp(Q128, percent(Q128, 50), percent(Q128, 150)));
+        assertEquals(Q128.multiply(BigInteger.valueOf(4375)).divide(BigInteger.valueOf(1000)),
+                mulDivRoundingUp(Q128, Q128.multiply(BigInteger.valueOf(35)), Q128.multiply(BigInteger.valueOf(8))));
+        assertEquals(Q128.divide(BigInteger.valueOf(3)).add(BigInteger.ONE),
+                mulDivRoundingUp(Q128, Q128.multiply(BigInteger.valueOf(1000)), Q128.multiply(BigInteger.valueOf(3000))));
+    }
+
+    @Test
+    void mulDivMatchesBigInteger() {
+        final SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < 100_000; i++) {
+            final BigInteger a = randomWord(random);
+            final BigInteger b = randomWord(random);
+            final BigInteger d = randomWord(random);
+            if (d.signum() == 0) {
+                continue;
+            }
+            final BigInteger[] qr = a.multiply(b).divideAndRemainder(d);
+            if (qr[0].compareTo(MAX) > 0) {
+                assertThrows(Revert.class, () -> mulDiv(a, b, d));
+                continue;
+            }
+            assertEquals(qr[0], mulDiv(a, b, d), "mulDiv(" + a + ", " + b + ", " + d + ")");
+            final BigInteger up = qr[1].signum() == 0 ? qr[0] : qr[0].add(BigInteger.ONE);
+            if (up.compareTo(MAX) <= 0) {
+                assertEquals(up, mulDivRoundingUp(a, b, d), "mulDivRoundingUp(" + a + ", " + b + ", " + d + ")");
+            }
+        }
+    }
+
+    //
+    // Private
+    //
+
+    private BigInteger mulDiv(BigInteger a, BigInteger b, BigInteger d) {
+        return fullMath.mulDiv(Uint256.of(a), Uint256.of(b), Uint256.of(d), new Uint256()).toBigInteger();
+    }
+
+    private BigInteger mulDivRoundingUp(BigInteger a, BigInteger b, BigInteger d) {
+        return fullMath.mulDivRoundingUp(Uint256.of(a), Uint256.of(b), Uint256.of(d), new Uint256()).toBigInteger();
+    }
+
+    private static BigInteger percent(BigInteger x, int percent) {
+        return x.multiply(BigInteger.valueOf(percent)).divide(BigInteger.valueOf(100));
+    }
+
+    /** Random bit length too, so that small denominators and large quotients both show up */
+    private static BigInteger randomWord(SplittableRandom random) {
+        final int bits = 1 + random.nextInt(256);
+        BigInteger result = BigInteger.ZERO;
+        for (int i = 0; i < 4; i++) {
+            result = result.shiftLeft(64).or(BigInteger.valueOf(random.nextLong()).and(BigInteger.ONE.shiftLeft(64).subtract(BigInteger.ONE)));
+        }
+        return result.shiftRight(256 - bits);
+    }
+}
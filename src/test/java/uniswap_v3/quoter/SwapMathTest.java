@@ -0,0 +1,83 @@
+package uniswap_v3.quoter;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Cases of SwapMath.spec.ts, exact input and exact output.
+ */
+class SwapMathTest {
+
+    private static final String PRICE_1_1 = "79228162514264337593543950336";        // encodePriceSqrt(1, 1)
+    private static final String PRICE_101_100 = "79623317895830914510639640423";    // encodePriceSqrt(101, 100)
+    private static final String PRICE_1000_100 = "250541448375047931186413801569";  // encodePriceSqrt(1000, 100)
+    private static final String PRICE_10000_100 = "792281625142643375935439503360"; // encodePriceSqrt(10000, 100)
+    private static final String E18 = "1000000000000000000";
+    private static final String TWO_E18 = "2000000000000000000";
+
+    private final SwapMath swapMath = new SwapMath();
+
+    @Test
+    void exactInputCappedAtPriceTarget() {
+        check(PRICE_1_1, PRICE_101_100, TWO_E18, E18, 600,
+                PRICE_101_100, "9975124224178055", "9925619580021728", "5988667735148");
+    }
+
+    @Test
+    void exactOutputCappedAtPriceTarget() {
+        check(PRICE_1_1, PRICE_101_100, TWO_E18, "-" + E18, 600,
+                PRICE_101_100, "9975124224178055", "9925619580021728", "5988667735148");
+    }
+
+    @Test
+    void exactInputFullySpent() {
+        check(PRICE_1_1, PRICE_1000_100, TWO_E18, E18, 600,
+                "118818475322642227089037862318", "999400000000000000", "666399946655997866", "600000000000000");
+    }
+
+    @Test
+    void exactOutputFullyReceived() {
+        check(PRICE_1_1, PRICE_10000_100, TWO_E18, "-" + E18, 600,
+                "158456325028528675187087900672", TWO_E18, E18, "1200720432259356");
+    }
+
+    @Test
+    void amountOutCappedAtDesiredAmountOut() {
+        check("417332158212080721273783715441582", "1452870262520218020823638996",
+                "159344665391607089467575320103", "-1", 1,
+                "417332158212080721273783715441581", "1", "1", "1");
+    }
+
+    @Test
+    void targetPriceOfOneUsesPartialInput() {
+        check("2", "1", "1", "3915081100057732413702495386755767", 1,
+                "1", "39614081257132168796771975168", "0", "39614120871253040049813");
+    }
+
+    @Test
+    void entireInputTakenAsFee() {
+        check("2413", "79887613182836312", "1985041575832132834610021537970", "10", 1872,
+                "2413", "0", "0", "10");
+    }
+
+    @Test
+    void exactOutputHandlesIntermediateInsufficientLiquidity() {
+        check("20282409603651670423947251286016", "22310650564016837466341976414617", "1024", "-4", 3000,
+                "22310650564016837466341976414617", "26215", "0", "79");
+        check("20282409603651670423947251286016", "18254168643286503381552526157414", "1024", "-263000", 3000,
+                "18254168643286503381552526157414", "1", "26214", "1");
+    }
+
+    private void check(String sqrtP, String sqrtPTarget, String liquidity, String amountRemaining, int feePips,
+                       String sqrtQ, String amountIn, String amountOut, String feeAmount) {
+        final SwapMath.Step step = swapMath.computeSwapStep(Uint256.of(sqrtP), Uint256.of(sqrtPTarget),
+                Uint256.of(liquidity), Uint256.of(new BigInteger(amountRemaining)), feePips, new SwapMath.Step());
+        assertEquals(new BigInteger(sqrtQ), step.sqrtRatioNextX96.toBigInteger(), "sqrtQ");
+        assertEquals(new BigInteger(amountIn), step.amountIn.toBigInteger(), "amountIn");
+        assertEquals(new BigInteger(amountOut), step.amountOut.toBigInteger(), "amountOut");
+        assertEquals(new BigInteger(feeAmount), step.feeAmount.toBigInteger(), "feeAmount");
+    }
+}
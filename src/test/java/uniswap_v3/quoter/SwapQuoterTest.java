@@ -0,0 +1,102 @@
+package uniswap_v3.quoter;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Swaps across initialized ticks on a 0.3% pool (tick spacing 60) starting at price 1, with
+ * positions [-120, 120) 1e18, [-18000, -60) 3e17 and [60, 1200) 2e17.
+ * Expected values come from a BigInteger replica of UniswapV3Pool.swap().
+ */
+class SwapQuoterTest {
+
+    private static final BigInteger Q96 = BigInteger.ONE.shiftLeft(96);
+    private static final BigInteger MIN_LIMIT = TickMath.minSqrtRatio().toBigInteger().add(BigInteger.ONE);
+    private static final BigInteger MAX_LIMIT = TickMath.maxSqrtRatio().toBigInteger().subtract(BigInteger.ONE);
+
+    @Test
+    void zeroForOneExactInputCrossesTwoTicks() {
+        final SwapQuoter.Quote q = pool().quote(true, new BigInteger("20000000000000000"), MIN_LIMIT);
+        assertQuote(q, "20000000000000000", "-19208730438552270", "75497678293459716798728537939",
+                "300000000000000000", -965, 2);
+    }
+
+    @Test
+    void zeroForOneExactOutputCrossesTwoTicks() {
+        final SwapQuoter.Quote q = pool().quote(true, new BigInteger("-20000000000000000"), MIN_LIMIT);
+        assertQuote(q, "20876445716946009", "-20000000000000000", "75288708848769812215647031498",
+                "300000000000000000", -1021, 2);
+    }
+
+    @Test
+    void oneForZeroExactInputCrossesTwoTicks() {
+        final SwapQuoter.Quote q = pool().quote(false, new BigInteger("10000000000000000"), MAX_LIMIT);
+        assertQuote(q, "-9834455307663438", "10000000000000000", "81031845724445804938200376093",
+                "200000000000000000", 450, 2);
+    }
+
+    @Test
+    void oneForZeroExactOutputCrossesTwoTicks() {
+        final SwapQuoter.Quote q = pool().quote(false, new BigInteger("-10000000000000000"), MAX_LIMIT);
+        assertQuote(q, "-10000000000000000", "10173836197225698", "81100502746031831344820730783",
+                "200000000000000000", 467, 2);
+    }
+
+    @Test
+    void stopsAtThePriceLimitAcrossAnEmptyWord() {
+        // tick -15360 is a word boundary of the bitmap with nothing initialized around it
+        final BigInteger limit = sqrtRatio(-17000);
+        final SwapQuoter.Quote q = pool().quote(true, BigInteger.TEN.pow(24), limit);
+        assertQuote(q, "408205271567488546", "-176853202396222591", limit.toString(),
+                "300000000000000000", -17000, 2);
+    }
+
+    @Test
+    void stopsAtThePriceLimitBeforeTheNextTick() {
+        final BigInteger limit = sqrtRatio(90);
+        final SwapQuoter.Quote q = pool().quote(false, BigInteger.TEN.pow(24), limit);
+        assertQuote(q, "-4788528443491106", "4825502741570400", limit.toString(),
+                "1200000000000000000", 90, 1);
+    }
+
+    @Test
+    void rejectsZeroAmountsAndLimitsOnTheWrongSide() {
+        final SwapQuoter quoter = pool();
+        assertThrows(Revert.class, () -> quoter.quote(true, BigInteger.ZERO, MIN_LIMIT));
+        assertThrows(Revert.class, () -> quoter.quote(true, BigInteger.ONE, Q96.add(BigInteger.ONE)));
+        assertThrows(Revert.class, () -> quoter.quote(false, BigInteger.ONE, Q96));
+        assertThrows(Revert.class, () -> quoter.quote(true, BigInteger.ONE, TickMath.minSqrtRatio().toBigInteger()));
+    }
+
+    //
+    // Private
+    //
+
+    private static SwapQuoter pool() {
+        final SwapQuoter result = new SwapQuoter(3000, 60);
+        result.setSlot0(Q96, 0);
+        result.modifyPosition(-120, 120, new BigInteger("1000000000000000000"));
+        result.modifyPosition(-18000, -60, new BigInteger("300000000000000000"));
+        result.modifyPosition(60, 1200, new BigInteger("200000000000000000"));
+        assertEquals(6, result.getTickCount());
+        return result;
+    }
+
+    private static BigInteger sqrtRatio(int tick) {
+        return new TickMath().getSqrtRatioAtTick(tick, new Uint256()).toBigInteger();
+    }
+
+    private static void assertQuote(SwapQuoter.Quote q, String amount0, String amount1, String sqrtPriceX96After,
+                                    String liquidityAfter, int tickAfter, int initializedTicksCrossed) {
+        assertEquals(new BigInteger(amount0), q.amount0.toSignedBigInteger());
+        assertEquals(new BigInteger(amount1), q.amount1.toSignedBigInteger());
+        assertEquals(new BigInteger(sqrtPriceX96After), q.sqrtPriceX96After.toBigInteger());
+        assertEquals(new BigInteger(liquidityAfter), q.liquidityAfter.toBigInteger());
+        assertEquals(tickAfter, q.tickAfter);
+        assertEquals(initializedTicksCrossed, q.initializedTicksCrossed);
+    }
+}
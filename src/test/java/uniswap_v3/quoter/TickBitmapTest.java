@@ -0,0 +1,78 @@
+package uniswap_v3.quoter;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Cases of TickBitmap.spec.ts: tick spacing 1, ticks -200, -55, -4, 70, 78, 84, 139, 240 and 535 initialized.
+ */
+class TickBitmapTest {
+
+    private TickBitmap bitmap;
+
+    @BeforeEach
+    void initTicks() {
+        bitmap = new TickBitmap(1);
+        for (int tick : new int[] { -200, -55, -4, 70, 78, 84, 139, 240, 535 }) {
+            bitmap.flipTick(tick);
+        }
+    }
+
+    @Test
+    void nextInitializedTickToTheRight() {
+        assertNext(84, true, 78, false);
+        assertNext(-4, true, -55, false);
+        assertNext(78, true, 77, false);
+        assertNext(-55, true, -56, false);
+        assertNext(535, true, 511, false);
+        assertNext(-200, true, -257, false);
+    }
+
+    @Test
+    void nextTickToTheRightStopsAtTheWordBoundary() {
+        assertNext(511, false, 255, false);
+        assertNext(511, false, 383, false);
+        assertNext(511, false, 508, false);
+    }
+
+    @Test
+    void nextInitializedTickToTheLeft() {
+        assertNext(78, true, 78, true);
+        assertNext(78, true, 79, true);
+        assertNext(70, true, 72, true);
+
+        bitmap.flipTick(329);
+        assertNext(329, true, 456, true);
+    }
+
+    @Test
+    void nextTickToTheLeftStopsAtTheWordBoundary() {
+        assertNext(256, false, 258, true);
+        assertNext(256, false, 256, true);
+        assertNext(-512, false, -257, true);
+        assertNext(768, false, 1023, true);
+        assertNext(768, false, 900, true);
+    }
+
+    @Test
+    void flipTickTogglesAndNegativeTicksRoundDown() {
+        assertTrue(bitmap.isInitialized(-200));
+        bitmap.flipTick(-200);
+        assertFalse(bitmap.isInitialized(-200));
+
+        final TickBitmap spaced = new TickBitmap(60);
+        spaced.flipTick(-120);
+        // -61 compresses to -2 (rounded towards negative infinity), so -120 is the next tick at or below it
+        assertEquals(-120, spaced.nextInitializedTickWithinOneWord(-61, true));
+        assertTrue(spaced.lastInitialized());
+    }
+
+    private void assertNext(int expected, boolean initialized, int tick, boolean lte) {
+        assertEquals(expected, bitmap.nextInitializedTickWithinOneWord(tick, lte));
+        assertEquals(initialized, bitmap.lastInitialized());
+    }
+}
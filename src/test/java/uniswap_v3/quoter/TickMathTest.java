@@ -0,0 +1,77 @@
+package uniswap_v3.quoter;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Cases of TickMath.spec.ts at the ends of the tick range.
+ */
+class TickMathTest {
+
+    private static final BigInteger MIN_SQRT_RATIO_PLUS_ONE_TICK = new BigInteger("4295343490");
+    private static final BigInteger MAX_SQRT_RATIO_MINUS_ONE_TICK = new BigInteger("1461373636630004318706518188784493106690254656249");
+
+    private final TickMath tickMath = new TickMath();
+
+    @Test
+    void getSqrtRatioAtTickRejectsTicksOutOfRange() {
+        assertThrows(Revert.class, () -> tickMath.getSqrtRatioAtTick(TickMath.MIN_TICK - 1, new Uint256()));
+        assertThrows(Revert.class, () -> tickMath.getSqrtRatioAtTick(TickMath.MAX_TICK + 1, new Uint256()));
+    }
+
+    @Test
+    void getSqrtRatioAtTickAtMinAndMaxTicks() {
+        assertEquals(TickMath.minSqrtRatio(), tickMath.getSqrtRatioAtTick(TickMath.MIN_TICK, new Uint256()));
+        assertEquals(MIN_SQRT_RATIO_PLUS_ONE_TICK, sqrtRatio(TickMath.MIN_TICK + 1));
+        assertEquals(MAX_SQRT_RATIO_MINUS_ONE_TICK, sqrtRatio(TickMath.MAX_TICK - 1));
+        assertEquals(TickMath.maxSqrtRatio(), tickMath.getSqrtRatioAtTick(TickMath.MAX_TICK, new Uint256()));
+        assertEquals(BigInteger.ONE.shiftLeft(96), sqrtRatio(0));
+    }
+
+    @Test
+    void getTickAtSqrtRatioRejectsRatiosOutOfRange() {
+        final Uint256 belowMin = new Uint256(TickMath.minSqrtRatio()).sub(new Uint256(1));
+        assertThrows(Revert.class, () -> tickMath.getTickAtSqrtRatio(belowMin));
+        assertThrows(Revert.class, () -> tickMath.getTickAtSqrtRatio(TickMath.maxSqrtRatio()));
+    }
+
+    @Test
+    void getTickAtSqrtRatioAtMinAndMaxRatios() {
+        assertEquals(TickMath.MIN_TICK, tickMath.getTickAtSqrtRatio(TickMath.minSqrtRatio()));
+        assertEquals(TickMath.MIN_TICK + 1, tickMath.getTickAtSqrtRatio(Uint256.of(MIN_SQRT_RATIO_PLUS_ONE_TICK)));
+        assertEquals(TickMath.MAX_TICK - 1, tickMath.getTickAtSqrtRatio(Uint256.of(MAX_SQRT_RATIO_MINUS_ONE_TICK)));
+        final Uint256 maxMinusOne = new Uint256(TickMath.maxSqrtRatio()).sub(new Uint256(1));
+        assertEquals(TickMath.MAX_TICK - 1, tickMath.getTickAtSqrtRatio(maxMinusOne));
+    }
+
+    @Test
+    void getTickAtSqrtRatioInvertsGetSqrtRatioAtTick() {
+        for (int tick = TickMath.MIN_TICK; tick < TickMath.MAX_TICK; tick += 997) {
+            final Uint256 ratio = tickMath.getSqrtRatioAtTick(tick, new Uint256());
+            assertEquals(tick, tickMath.getTickAtSqrtRatio(ratio));
+            // one below the ratio of the tick belongs to the previous tick
+            if (tick > TickMath.MIN_TICK) {
+                assertEquals(tick - 1, tickMath.getTickAtSqrtRatio(ratio.sub(new Uint256(1))));
+            }
+        }
+    }
+
+    @Test
+    void getSqrtRatioAtTickIsIncreasing() {
+        final Uint256 previous = tickMath.getSqrtRatioAtTick(TickMath.MIN_TICK, new Uint256());
+        for (int tick = TickMath.MIN_TICK + 1; tick <= TickMath.MAX_TICK; tick += 101) {
+            final Uint256 ratio = tickMath.getSqrtRatioAtTick(tick, new Uint256());
+            assertTrue(ratio.compareTo(previous) > 0, "tick " + tick);
+            previous.set(ratio);
+        }
+    }
+
+    private BigInteger sqrtRatio(int tick) {
+        return tickMath.getSqrtRatioAtTick(tick, new Uint256()).toBigInteger();
+    }
+}